@@ -0,0 +1,141 @@
+package com.github.achenglike.core;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the per-frame cost of the tab strip while the pager is dragged:
+ * indicator bounds and color, the text color fade of the two affected tabs,
+ * the scroll target and finding the batched divider lines inside the
+ * visible clip. Rebuilding the divider batch, which only happens on layout
+ * or color changes, is measured separately.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class SlidingTabGeometryBenchmark {
+
+    private static final int FRAMES_PER_PAGE = 16;
+    private static final int DEFAULT_TEXT_COLOR = 0xFF000000;
+    private static final int VIEWPORT_WIDTH = 1080;
+
+    @Param({"5", "50", "500"})
+    public int tabCount;
+
+    @Param({"simple", "custom"})
+    public String colorizer;
+
+    /**
+     * 0 表示不使用颜色查找表
+     */
+    @Param({"0", "64"})
+    public int blendSteps;
+
+    private SlidingTabGeometry mGeometry;
+    private TabColorizer mColorizer;
+    private ColorBlendTable mBlendTable;
+    private DividerBatch mDividerBatch;
+    private int[] mNaturalWidths;
+    private int mFrame;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        mNaturalWidths = new int[tabCount];
+        for (int i = 0; i < tabCount; i++) {
+            // 模拟长短不一的标题
+            mNaturalWidths[i] = 120 + (i * 37) % 90;
+        }
+        mGeometry = new SlidingTabGeometry();
+        mGeometry.setIndicatorWidth(48);
+        mGeometry.setEdgePadding(30, 30);
+        mGeometry.layoutTabs(mNaturalWidths, tabCount, VIEWPORT_WIDTH, true);
+        mGeometry.rebuildIndicatorBounds();
+
+        if ("custom".equals(colorizer)) {
+            mColorizer = new TabColorizer() {
+                @Override
+                public int getIndicatorColor(int position) {
+                    return 0xFF000000 | (position * 0x3F1F0F);
+                }
+
+                @Override
+                public int getDividerColor(int position) {
+                    return (position & 1) == 0 ? 0x20000000 : 0x20FFFFFF;
+                }
+            };
+        } else {
+            SimpleTabColorizer simpleTabColorizer = new SimpleTabColorizer();
+            simpleTabColorizer.setIndicatorColors(0xFFD82A3E, 0xFF2A7AD8, 0xFF2AD84F);
+            simpleTabColorizer.setDividerColors(0x20000000);
+            mColorizer = simpleTabColorizer;
+        }
+
+        if (blendSteps > 0) {
+            mBlendTable = new ColorBlendTable(blendSteps);
+            mBlendTable.setDefaultTextColor(DEFAULT_TEXT_COLOR);
+            mBlendTable.setColorizer(mColorizer);
+        }
+
+        mDividerBatch = new DividerBatch();
+        mDividerBatch.rebuild(mGeometry, mColorizer, 10f, 40f);
+    }
+
+    @Benchmark
+    public void scrollFrame(Blackhole blackhole) {
+        final int frame = mFrame++;
+        final int position = (frame / FRAMES_PER_PAGE) % (tabCount - 1);
+        final float offset = (frame % FRAMES_PER_PAGE) / (float) FRAMES_PER_PAGE;
+        final SlidingTabGeometry geometry = mGeometry;
+
+        blackhole.consume(geometry.update(position, offset, mColorizer, mBlendTable));
+        blackhole.consume(geometry.getIndicatorLeft());
+        blackhole.consume(geometry.getIndicatorRight());
+        blackhole.consume(geometry.getIndicatorColor());
+
+        int fadeLevel = geometry.getTextFadeLevel();
+        if (mBlendTable != null) {
+            blackhole.consume(mBlendTable.getTextColor(position,
+                    SlidingTabGeometry.TEXT_FADE_STEPS - fadeLevel, SlidingTabGeometry.TEXT_FADE_STEPS));
+            blackhole.consume(mBlendTable.getTextColor(position + 1, fadeLevel, SlidingTabGeometry.TEXT_FADE_STEPS));
+        } else {
+            blackhole.consume(SlidingTabGeometry.computeTextColor(mColorizer.getIndicatorColor(position),
+                    DEFAULT_TEXT_COLOR, SlidingTabGeometry.TEXT_FADE_STEPS - fadeLevel));
+            blackhole.consume(SlidingTabGeometry.computeTextColor(mColorizer.getIndicatorColor(position + 1),
+                    DEFAULT_TEXT_COLOR, fadeLevel));
+        }
+
+        int tabLeft = geometry.getTabLeft(position);
+        int tabWidth = geometry.getTabRight(position) - tabLeft;
+        final int scrollX = SlidingTabGeometry.computeScrollTarget(tabLeft, position, (int) (offset * tabWidth), 72);
+        blackhole.consume(scrollX);
+
+        // onDraw只查找裁剪区域内的分割线，每种颜色一次drawLines
+        final DividerBatch dividers = mDividerBatch;
+        for (int g = 0; g < dividers.getGroupCount(); g++) {
+            blackhole.consume(dividers.findFirstLine(g, scrollX));
+            blackhole.consume(dividers.findLastLine(g, scrollX + VIEWPORT_WIDTH));
+        }
+    }
+
+    @Benchmark
+    public void rebuildDividers(Blackhole blackhole) {
+        mDividerBatch.rebuild(mGeometry, mColorizer, 10f, 40f);
+        blackhole.consume(mDividerBatch.getGroupCount());
+    }
+
+    @Benchmark
+    public void relayout(Blackhole blackhole) {
+        blackhole.consume(mGeometry.layoutTabs(mNaturalWidths, tabCount, VIEWPORT_WIDTH, true));
+        mGeometry.rebuildIndicatorBounds();
+    }
+}
@@ -0,0 +1,30 @@
+package com.github.achenglike.core;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures blending two colors without a lookup table, the fallback used
+ * when no {@link ColorBlendTable} is installed. It does not depend on the
+ * tab count or the colorizer, so unlike {@link SlidingTabGeometryBenchmark}
+ * it has no parameters.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class TabColorsBenchmark {
+
+    private int mFrame;
+
+    @Benchmark
+    public int blendColors() {
+        final float ratio = (mFrame++ % 64) / 64f;
+        return TabColors.blendColors(0xFFD82A3E, 0xFF000000, ratio);
+    }
+}
@@ -0,0 +1,142 @@
+package com.github.achenglike.core;
+
+/**
+ * Precomputed color blends for the transitions between adjacent tabs, so
+ * that the per-frame color work is an indexed int read.
+ *
+ * <p>Rows are built lazily on first use and dropped by
+ * {@link #invalidate()}. With a {@link SimpleTabColorizer} the colors repeat
+ * every {@link SimpleTabColorizer#getIndicatorColorCount()} tabs and only
+ * that many rows are built. A custom {@link TabColorizer} gets one row per
+ * tab; call {@link #invalidate()} when its colors change.
+ */
+public final class ColorBlendTable {
+
+    private final int mSteps;
+
+    private TabColorizer mColorizer;
+    private int mPeriod;
+    private int mDefaultTextColor;
+
+    /**
+     * Indicator blends from tab {@code p} to tab {@code p + 1}.
+     */
+    private int[][] mIndicatorRows = new int[0][];
+    /**
+     * Text blends from the default text color to the indicator color of tab
+     * {@code p}.
+     */
+    private int[][] mTextRows = new int[0][];
+
+    /**
+     * @param steps number of blend steps per adjacent tab pair, for example
+     *              64 or 256
+     */
+    public ColorBlendTable(int steps) {
+        if (steps <= 0) {
+            throw new IllegalArgumentException("steps must be positive: " + steps);
+        }
+        mSteps = steps;
+    }
+
+    public int getSteps() {
+        return mSteps;
+    }
+
+    public void setColorizer(TabColorizer colorizer) {
+        mColorizer = colorizer;
+        invalidate();
+    }
+
+    public void setDefaultTextColor(int color) {
+        if (mDefaultTextColor != color) {
+            mDefaultTextColor = color;
+            mTextRows = new int[0][];
+        }
+    }
+
+    /**
+     * Drops all precomputed rows, they are rebuilt on next use.
+     */
+    public void invalidate() {
+        mPeriod = mColorizer instanceof SimpleTabColorizer
+                ? ((SimpleTabColorizer) mColorizer).getIndicatorColorCount() : 0;
+        mIndicatorRows = new int[0][];
+        mTextRows = new int[0][];
+    }
+
+    /**
+     * @return the indicator color while moving from tab {@code position} to
+     *         the next one, {@code offset} being between 0 and 1.
+     */
+    public int getIndicatorColor(int position, float offset) {
+        int[] row = getIndicatorRow(position);
+        return row[(int) (offset * mSteps + 0.5f)];
+    }
+
+    /**
+     * @return the text color of tab {@code position} that is
+     *         {@code fadeLevel} of {@code fadeSteps} towards its selected
+     *         color.
+     */
+    public int getTextColor(int position, int fadeLevel, int fadeSteps) {
+        int[] row = getTextRow(position);
+        return row[fadeLevel * mSteps / fadeSteps];
+    }
+
+    private int rowIndex(int position) {
+        return mPeriod > 0 ? position % mPeriod : position;
+    }
+
+    private int[] getIndicatorRow(int position) {
+        final int index = rowIndex(position);
+        if (index >= mIndicatorRows.length) {
+            mIndicatorRows = grow(mIndicatorRows, index);
+        }
+        int[] row = mIndicatorRows[index];
+        if (row == null) {
+            int from = mColorizer.getIndicatorColor(position);
+            int to = mColorizer.getIndicatorColor(position + 1);
+            row = buildRow(to, from);
+            mIndicatorRows[index] = row;
+        }
+        return row;
+    }
+
+    private int[] getTextRow(int position) {
+        final int index = rowIndex(position);
+        if (index >= mTextRows.length) {
+            mTextRows = grow(mTextRows, index);
+        }
+        int[] row = mTextRows[index];
+        if (row == null) {
+            row = buildRow(mColorizer.getIndicatorColor(position), mDefaultTextColor);
+            mTextRows[index] = row;
+        }
+        return row;
+    }
+
+    /**
+     * Entry {@code i} is {@code color1} blended over {@code color2} with a
+     * ratio of {@code i / steps}.
+     */
+    private int[] buildRow(int color1, int color2) {
+        int[] row = new int[mSteps + 1];
+        if (color1 == color2) {
+            for (int i = 0; i <= mSteps; i++) {
+                row[i] = color1;
+            }
+        } else {
+            for (int i = 0; i <= mSteps; i++) {
+                row[i] = TabColors.blendColors(color1, color2, i / (float) mSteps);
+            }
+        }
+        return row;
+    }
+
+    private static int[][] grow(int[][] rows, int index) {
+        int[][] grown = new int[Math.max(index + 1, rows.length * 2)][];
+        System.arraycopy(rows, 0, grown, 0, rows.length);
+        return grown;
+    }
+}
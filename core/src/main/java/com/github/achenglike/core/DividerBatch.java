@@ -0,0 +1,163 @@
+package com.github.achenglike.core;
+
+/**
+ * The vertical dividers between tabs, grouped by color into line arrays in
+ * the {@code x0, y0, x1, y1} format of {@code Canvas.drawLines}, so that a
+ * frame draws one batch per color instead of one line per tab.
+ *
+ * <p>The batch is built from the tab bounds of a {@link SlidingTabGeometry}
+ * by {@link #rebuild(SlidingTabGeometry, TabColorizer, float, float)} and
+ * stays valid until the tabs are laid out again or the colors change. The
+ * lines of every group are sorted by x, so the lines inside a clip range
+ * are found with {@link #findFirstLine(int, float)} and
+ * {@link #findLastLine(int, float)}.
+ */
+public final class DividerBatch {
+
+    private static final int FLOATS_PER_LINE = 4;
+
+    private int mGroupCount;
+    private int[] mGroupColors = new int[0];
+    private int[] mGroupLineCounts = new int[0];
+    private float[][] mGroupLines = new float[0][];
+
+    private int[] mLineGroups = new int[0];
+
+    /**
+     * Rebuilds the dividers to the right of every tab but the last one,
+     * reusing the arrays of the previous build where they are big enough.
+     *
+     * @param top    top of every divider line
+     * @param bottom bottom of every divider line
+     */
+    public void rebuild(SlidingTabGeometry geometry, TabColorizer colorizer, float top, float bottom) {
+        final int lineCount = Math.max(0, geometry.getTabCount() - 1);
+        if (mLineGroups.length < lineCount) {
+            mLineGroups = new int[lineCount];
+        }
+        // 第一遍：按颜色分组并统计每组的数量
+        int groupCount = 0;
+        for (int i = 0; i < lineCount; i++) {
+            final int color = colorizer.getDividerColor(i);
+            int group = indexOfGroup(color, groupCount);
+            if (group < 0) {
+                group = groupCount++;
+                ensureGroupCapacity(groupCount);
+                mGroupColors[group] = color;
+                mGroupLineCounts[group] = 0;
+            }
+            mLineGroups[i] = group;
+            mGroupLineCounts[group]++;
+        }
+        for (int g = 0; g < groupCount; g++) {
+            final int size = mGroupLineCounts[g] * FLOATS_PER_LINE;
+            if (mGroupLines[g] == null || mGroupLines[g].length < size) {
+                mGroupLines[g] = new float[size];
+            }
+            mGroupLineCounts[g] = 0;
+        }
+        // 第二遍：按x从小到大填充每组的线段
+        for (int i = 0; i < lineCount; i++) {
+            final int group = mLineGroups[i];
+            final float x = geometry.getTabRight(i);
+            final float[] lines = mGroupLines[group];
+            final int offset = mGroupLineCounts[group]++ * FLOATS_PER_LINE;
+            lines[offset] = x;
+            lines[offset + 1] = top;
+            lines[offset + 2] = x;
+            lines[offset + 3] = bottom;
+        }
+        mGroupCount = groupCount;
+    }
+
+    /**
+     * Removes every divider, for example when there are no tabs.
+     */
+    public void clear() {
+        mGroupCount = 0;
+    }
+
+    public int getGroupCount() {
+        return mGroupCount;
+    }
+
+    public int getGroupColor(int group) {
+        return mGroupColors[group];
+    }
+
+    public int getGroupLineCount(int group) {
+        return mGroupLineCounts[group];
+    }
+
+    /**
+     * @return the lines of {@code group}; only the first
+     *         {@link #getGroupLineCount(int)} lines are valid.
+     */
+    public float[] getGroupLines(int group) {
+        return mGroupLines[group];
+    }
+
+    /**
+     * @return the index of the first line of {@code group} at or right of
+     *         {@code left}
+     */
+    public int findFirstLine(int group, float left) {
+        final float[] lines = mGroupLines[group];
+        int low = 0;
+        int high = mGroupLineCounts[group];
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (lines[mid * FLOATS_PER_LINE] < left) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * @return the index after the last line of {@code group} at or left of
+     *         {@code right}
+     */
+    public int findLastLine(int group, float right) {
+        final float[] lines = mGroupLines[group];
+        int low = 0;
+        int high = mGroupLineCounts[group];
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (lines[mid * FLOATS_PER_LINE] <= right) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    private int indexOfGroup(int color, int groupCount) {
+        // 分割线通常只有一两种颜色，线性查找即可
+        for (int g = 0; g < groupCount; g++) {
+            if (mGroupColors[g] == color) {
+                return g;
+            }
+        }
+        return -1;
+    }
+
+    private void ensureGroupCapacity(int groupCount) {
+        if (mGroupColors.length >= groupCount) {
+            return;
+        }
+        final int capacity = Math.max(groupCount, mGroupColors.length * 2);
+        int[] colors = new int[capacity];
+        int[] counts = new int[capacity];
+        float[][] lines = new float[capacity][];
+        System.arraycopy(mGroupColors, 0, colors, 0, mGroupColors.length);
+        System.arraycopy(mGroupLineCounts, 0, counts, 0, mGroupLineCounts.length);
+        System.arraycopy(mGroupLines, 0, lines, 0, mGroupLines.length);
+        mGroupColors = colors;
+        mGroupLineCounts = counts;
+        mGroupLines = lines;
+    }
+}
@@ -0,0 +1,27 @@
+package com.github.achenglike.core;
+
+/**
+ * The curves of {@link IndicatorMotion#STRETCH}. They match {@code AccelerateInterpolator} and
+ * {@code DecelerateInterpolator} with their default factor of 1.
+ */
+public final class IndicatorInterpolators {
+
+    private IndicatorInterpolators() {
+    }
+
+    /**
+     * Curve of the left indicator edge. While the pager moves towards the
+     * next page the left edge trails, so it starts slowly.
+     */
+    public static float accelerate(float input) {
+        return input * input;
+    }
+
+    /**
+     * Curve of the right indicator edge. While the pager moves towards the
+     * next page the right edge leads, so it starts quickly.
+     */
+    public static float decelerate(float input) {
+        return 1.0f - (1.0f - input) * (1.0f - input);
+    }
+}
@@ -0,0 +1,95 @@
+package com.github.achenglike.core;
+
+/**
+ * Describes how the two indicator edges move while the pager is dragged
+ * from a tab to the next one. Both curves map the page offset in
+ * {@code [0, 1]} to the fraction of the way the edge has travelled, 0 being
+ * the bounds below the current tab and 1 the bounds below the next one.
+ *
+ * <p>The curves are only evaluated when a motion is installed: they are
+ * sampled into an {@link IndicatorMotionTable} and every frame reads that
+ * table. Implementations may therefore use expensive math.
+ */
+public abstract class IndicatorMotion {
+
+    /**
+     * Both edges move together at a constant speed.
+     */
+    public static final IndicatorMotion LINEAR = new IndicatorMotion() {
+        @Override
+        public float getLeftFraction(float offset) {
+            return offset;
+        }
+
+        @Override
+        public float getRightFraction(float offset) {
+            return offset;
+        }
+    };
+
+    /**
+     * The right edge leads and the left edge follows, so the indicator
+     * stretches in the middle of the swipe. This is the default.
+     */
+    public static final IndicatorMotion STRETCH = new IndicatorMotion() {
+        @Override
+        public float getLeftFraction(float offset) {
+            return IndicatorInterpolators.accelerate(offset);
+        }
+
+        @Override
+        public float getRightFraction(float offset) {
+            return IndicatorInterpolators.decelerate(offset);
+        }
+    };
+
+    /**
+     * Like {@link #STRETCH}, but the right edge overshoots the next tab and
+     * springs back while the left edge catches up late.
+     */
+    public static final IndicatorMotion ELASTIC = new IndicatorMotion() {
+        private static final float TENSION = 2f;
+
+        @Override
+        public float getLeftFraction(float offset) {
+            return offset * offset * offset;
+        }
+
+        @Override
+        public float getRightFraction(float offset) {
+            // 与OvershootInterpolator相同的曲线
+            float t = offset - 1f;
+            return t * t * ((TENSION + 1f) * t + TENSION) + 1f;
+        }
+    };
+
+    /**
+     * Both edges follow the same ease-in-out curve, so the indicator keeps
+     * its width and slides to the next tab.
+     */
+    public static final IndicatorMotion SLIDE = new IndicatorMotion() {
+        @Override
+        public float getLeftFraction(float offset) {
+            return ease(offset);
+        }
+
+        @Override
+        public float getRightFraction(float offset) {
+            return ease(offset);
+        }
+
+        private float ease(float offset) {
+            return (float) ((1.0 - Math.cos(offset * Math.PI)) / 2.0);
+        }
+    };
+
+    /**
+     * @return how far the left indicator edge has moved at {@code offset}.
+     */
+    public abstract float getLeftFraction(float offset);
+
+    /**
+     * @return how far the right indicator edge has moved at {@code offset}.
+     */
+    public abstract float getRightFraction(float offset);
+}
@@ -0,0 +1,56 @@
+package com.github.achenglike.core;
+
+/**
+ * An {@link IndicatorMotion} sampled at {@link #SAMPLES} + 1 evenly spaced
+ * offsets. Lookups interpolate linearly between the two closest samples,
+ * so evaluating a curve per frame costs two array reads and no virtual
+ * call or transcendental math.
+ */
+public final class IndicatorMotionTable {
+
+    /**
+     * Number of intervals the {@code [0, 1]} offset range is divided into.
+     */
+    public static final int SAMPLES = 64;
+
+    private final IndicatorMotion mMotion;
+    private final float[] mLeftFractions = new float[SAMPLES + 1];
+    private final float[] mRightFractions = new float[SAMPLES + 1];
+
+    public IndicatorMotionTable(IndicatorMotion motion) {
+        if (motion == null) {
+            throw new IllegalArgumentException("motion == null");
+        }
+        mMotion = motion;
+        for (int i = 0; i <= SAMPLES; i++) {
+            float offset = i / (float) SAMPLES;
+            mLeftFractions[i] = motion.getLeftFraction(offset);
+            mRightFractions[i] = motion.getRightFraction(offset);
+        }
+    }
+
+    public IndicatorMotion getMotion() {
+        return mMotion;
+    }
+
+    public float getLeftFraction(float offset) {
+        return lookup(mLeftFractions, offset);
+    }
+
+    public float getRightFraction(float offset) {
+        return lookup(mRightFractions, offset);
+    }
+
+    private static float lookup(float[] table, float offset) {
+        if (offset <= 0f) {
+            return table[0];
+        }
+        float x = offset * SAMPLES;
+        int index = (int) x;
+        if (index >= SAMPLES) {
+            return table[SAMPLES];
+        }
+        float start = table[index];
+        return start + (table[index + 1] - start) * (x - index);
+    }
+}
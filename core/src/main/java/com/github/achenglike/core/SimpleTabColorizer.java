@@ -0,0 +1,49 @@
+package com.github.achenglike.core;
+
+/**
+ * {@link TabColorizer} backed by two color arrays which are treated as
+ * circular arrays.
+ */
+public class SimpleTabColorizer implements TabColorizer {
+    private int[] mIndicatorColors;
+    private int[] mDividerColors;
+
+    @Override
+    public final int getIndicatorColor(int position) {
+        return mIndicatorColors[position % mIndicatorColors.length];
+    }
+
+    @Override
+    public final int getDividerColor(int position) {
+        return mDividerColors[position % mDividerColors.length];
+    }
+
+    /**
+     * @return the number of indicator colors before they repeat.
+     */
+    public int getIndicatorColorCount() {
+        return mIndicatorColors.length;
+    }
+
+    /**
+     * @return the indicator colors, not copied.
+     */
+    public int[] getIndicatorColors() {
+        return mIndicatorColors;
+    }
+
+    /**
+     * @return the divider colors, not copied.
+     */
+    public int[] getDividerColors() {
+        return mDividerColors;
+    }
+
+    public void setIndicatorColors(int... colors) {
+        mIndicatorColors = colors;
+    }
+
+    public void setDividerColors(int... colors) {
+        mDividerColors = colors;
+    }
+}
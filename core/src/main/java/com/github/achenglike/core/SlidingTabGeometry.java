@@ -0,0 +1,310 @@
+package com.github.achenglike.core;
+
+/**
+ * Holds the horizontal bounds of every tab and the indicator math that runs
+ * on every scroll frame. It has no Android dependencies so that the hot path
+ * can be tested and benchmarked on a plain JVM.
+ *
+ * <p>Tab bounds are either copied from laid out views with
+ * {@link #setTabBounds(int, int, int)} or computed from natural widths with
+ * {@link #layoutTabs(int[], int, int, boolean)}. The indicator bounds of
+ * every tab are cached in a table that is rebuilt by
+ * {@link #rebuildIndicatorBounds()}; {@link #update(int, float, TabColorizer)}
+ * then only does table lookups and interpolation. The indicator edges follow
+ * the sampled curves of the {@link IndicatorMotion} set with
+ * {@link #setIndicatorMotion(IndicatorMotion)}.
+ */
+public final class SlidingTabGeometry {
+
+    /**
+     * Number of steps the selected text color fade is quantized to.
+     */
+    public static final int TEXT_FADE_STEPS = 32;
+
+    private int mTabCount;
+    private int[] mTabLefts = new int[0];
+    private int[] mTabRights = new int[0];
+
+    private int mIndicatorWidth;
+    private int[] mTabIndicatorWidths;
+    private int mLeftPadding;
+    private int mRightPadding;
+
+    private int[] mIndicatorLefts = new int[0];
+    private int[] mIndicatorRights = new int[0];
+    private boolean mIndicatorBoundsDirty = true;
+
+    private IndicatorMotionTable mMotionTable = new IndicatorMotionTable(IndicatorMotion.STRETCH);
+
+    private int mIndicatorLeft;
+    private int mIndicatorRight;
+    private int mIndicatorColor;
+    private int mTextFadeLevel;
+
+    public int getTabCount() {
+        return mTabCount;
+    }
+
+    public void setTabCount(int count) {
+        if (mTabLefts.length < count) {
+            mTabLefts = new int[count];
+            mTabRights = new int[count];
+        }
+        mTabCount = count;
+        mIndicatorBoundsDirty = true;
+    }
+
+    public void setTabBounds(int position, int left, int right) {
+        mTabLefts[position] = left;
+        mTabRights[position] = right;
+        mIndicatorBoundsDirty = true;
+    }
+
+    public int getTabLeft(int position) {
+        return mTabLefts[position];
+    }
+
+    public int getTabRight(int position) {
+        return mTabRights[position];
+    }
+
+    /**
+     * @return the right edge of the last tab, or 0 if there are no tabs.
+     */
+    public int getContentWidth() {
+        return mTabCount == 0 ? 0 : mTabRights[mTabCount - 1];
+    }
+
+    /**
+     * Places {@code count} tabs next to each other starting at 0. When
+     * {@code fillAvailable} is set and the tabs are narrower than
+     * {@code availableWidth}, the remaining space is shared equally, like
+     * {@code LinearLayout} does for children with a weight of 1.
+     *
+     * @return the resulting content width
+     */
+    public int layoutTabs(int[] naturalWidths, int count, int availableWidth, boolean fillAvailable) {
+        setTabCount(count);
+        int total = 0;
+        for (int i = 0; i < count; i++) {
+            total += naturalWidths[i];
+        }
+        int extra = (fillAvailable && count > 0 && availableWidth > total) ? availableWidth - total : 0;
+        int left = 0;
+        for (int i = 0; i < count; i++) {
+            int share = extra > 0 ? extra / count + (i < extra % count ? 1 : 0) : 0;
+            mTabLefts[i] = left;
+            left += naturalWidths[i] + share;
+            mTabRights[i] = left;
+        }
+        return left;
+    }
+
+    /**
+     * @return the index of the tab containing {@code x}, clamped to the valid
+     *         tab range, or -1 if there are no tabs.
+     */
+    public int findTabAt(int x) {
+        if (mTabCount == 0) {
+            return -1;
+        }
+        int low = 0;
+        int high = mTabCount - 1;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (x < mTabRights[mid]) {
+                high = mid;
+            } else {
+                low = mid + 1;
+            }
+        }
+        return low;
+    }
+
+    public void setIndicatorWidth(int indicatorWidth) {
+        mIndicatorWidth = indicatorWidth;
+        mIndicatorBoundsDirty = true;
+    }
+
+    /**
+     * Sets an indicator width per tab, for example the width of each title,
+     * which takes precedence over {@link #setIndicatorWidth(int)}. Tabs
+     * beyond the end of the array and entries that are not positive use the
+     * fixed width. The array is not copied; call
+     * {@link #invalidateIndicatorBounds()} after changing it.
+     *
+     * @param widths the widths, or {@code null} to use the fixed width again
+     */
+    public void setTabIndicatorWidths(int[] widths) {
+        mTabIndicatorWidths = widths;
+        mIndicatorBoundsDirty = true;
+    }
+
+    /**
+     * Sets the extra padding of the first and the last tab. The indicator of
+     * those tabs is shifted by half of it so that it stays centered below
+     * the title.
+     */
+    public void setEdgePadding(int leftPadding, int rightPadding) {
+        mLeftPadding = leftPadding;
+        mRightPadding = rightPadding;
+        mIndicatorBoundsDirty = true;
+    }
+
+    /**
+     * Samples {@code motion} into a lookup table used by every following
+     * {@link #update(int, float, TabColorizer)}.
+     */
+    public void setIndicatorMotion(IndicatorMotion motion) {
+        if (motion != mMotionTable.getMotion()) {
+            mMotionTable = new IndicatorMotionTable(motion);
+        }
+    }
+
+    public IndicatorMotion getIndicatorMotion() {
+        return mMotionTable.getMotion();
+    }
+
+    public boolean isIndicatorBoundsDirty() {
+        return mIndicatorBoundsDirty;
+    }
+
+    public void invalidateIndicatorBounds() {
+        mIndicatorBoundsDirty = true;
+    }
+
+    /**
+     * Recomputes the cached indicator bounds of every tab.
+     */
+    public void rebuildIndicatorBounds() {
+        final int count = mTabCount;
+        if (mIndicatorLefts.length < count) {
+            mIndicatorLefts = new int[count];
+            mIndicatorRights = new int[count];
+        }
+        final boolean hasEdgePadding = mLeftPadding > 0 || mRightPadding > 0;
+        final int[] tabIndicatorWidths = mTabIndicatorWidths;
+        final int tabIndicatorWidthCount = tabIndicatorWidths == null ? 0 : Math.min(count, tabIndicatorWidths.length);
+        for (int i = 0; i < count; i++) {
+            int indicatorWidth = i < tabIndicatorWidthCount && tabIndicatorWidths[i] > 0
+                    ? tabIndicatorWidths[i] : mIndicatorWidth;
+            int tabRight = mTabRights[i];
+            int tabWidth = tabRight - mTabLefts[i];
+            int left = tabRight - (tabWidth + indicatorWidth) / 2;
+            int right = tabRight - (tabWidth - indicatorWidth) / 2;
+            if (hasEdgePadding) {
+                if (i == 0) {
+                    left += mLeftPadding / 2;
+                    right += mLeftPadding / 2;
+                } else if (i == count - 1) {
+                    left -= mRightPadding / 2;
+                    right -= mRightPadding / 2;
+                }
+            }
+            mIndicatorLefts[i] = left;
+            mIndicatorRights[i] = right;
+        }
+        mIndicatorBoundsDirty = false;
+    }
+
+    /**
+     * Computes the indicator bounds, the indicator color and the text fade
+     * level for the given pager position. The results are available through
+     * {@link #getIndicatorLeft()}, {@link #getIndicatorRight()},
+     * {@link #getIndicatorColor()} and {@link #getTextFadeLevel()}.
+     *
+     * @return false if there is no tab at {@code position}
+     */
+    public boolean update(int position, float positionOffset, TabColorizer tabColorizer) {
+        return update(position, positionOffset, tabColorizer, null);
+    }
+
+    /**
+     * Same as {@link #update(int, float, TabColorizer)}, but reads the
+     * indicator color from {@code blendTable} when it is not {@code null}.
+     */
+    public boolean update(int position, float positionOffset, TabColorizer tabColorizer,
+                          ColorBlendTable blendTable) {
+        final int count = mTabCount;
+        if (count == 0 || position < 0 || position >= count) {
+            return false;
+        }
+        if (mIndicatorBoundsDirty) {
+            rebuildIndicatorBounds();
+        }
+
+        int left = mIndicatorLefts[position];
+        int right = mIndicatorRights[position];
+        int color;
+
+        if (positionOffset > 0f && position < (count - 1)) {
+            if (blendTable != null) {
+                color = blendTable.getIndicatorColor(position, positionOffset);
+            } else {
+                color = tabColorizer.getIndicatorColor(position);
+                int nextColor = tabColorizer.getIndicatorColor(position + 1);
+                if (color != nextColor) {
+                    color = TabColors.blendColors(nextColor, color, positionOffset);
+                }
+            }
+
+            int l = mIndicatorLefts[position + 1];
+            int r = mIndicatorRights[position + 1];
+            final IndicatorMotionTable motionTable = mMotionTable;
+            float leftFraction = motionTable.getLeftFraction(positionOffset);
+            float rightFraction = motionTable.getRightFraction(positionOffset);
+            left = (int) (leftFraction * l + (1.0f - leftFraction) * left);
+            right = (int) (rightFraction * r + (1.0f - rightFraction) * right);
+        } else {
+            color = tabColorizer.getIndicatorColor(position);
+        }
+
+        mIndicatorLeft = left;
+        mIndicatorRight = right;
+        mIndicatorColor = color;
+        mTextFadeLevel = (int) (positionOffset * TEXT_FADE_STEPS + 0.5f);
+        return true;
+    }
+
+    public int getIndicatorLeft() {
+        return mIndicatorLeft;
+    }
+
+    public int getIndicatorRight() {
+        return mIndicatorRight;
+    }
+
+    public int getIndicatorColor() {
+        return mIndicatorColor;
+    }
+
+    /**
+     * @return how far the text color has faded from the selected tab to the
+     *         next one, between 0 and {@link #TEXT_FADE_STEPS}.
+     */
+    public int getTextFadeLevel() {
+        return mTextFadeLevel;
+    }
+
+    /**
+     * @return the text color of a tab that is {@code fadeLevel} steps
+     *         towards its selected color.
+     */
+    public static int computeTextColor(int indicatorColor, int defaultColor, int fadeLevel) {
+        return TabColors.blendColors(indicatorColor, defaultColor, fadeLevel / (float) TEXT_FADE_STEPS);
+    }
+
+    /**
+     * @return the horizontal scroll position that shows the tab starting at
+     *         {@code tabLeft}, moved by {@code positionOffset} pixels.
+     */
+    public static int computeScrollTarget(int tabLeft, int tabIndex, int positionOffset, int titleOffset) {
+        int targetScrollX = tabLeft + positionOffset;
+        if (tabIndex > 0 || positionOffset > 0) {
+            // If we're not at the first child and are mid-scroll, make sure
+            // we obey the offset
+            targetScrollX -= titleOffset;
+        }
+        return targetScrollX;
+    }
+}
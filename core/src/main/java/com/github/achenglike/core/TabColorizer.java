@@ -0,0 +1,21 @@
+package com.github.achenglike.core;
+
+/**
+ * Supplies the colors drawn in the tab strip. This is the platform
+ * independent part of {@code SlidingTabLayout.TabColorizer}.
+ */
+public interface TabColorizer {
+
+    /**
+     * @return return the color of the indicator used when {@code position}
+     *         is selected.
+     */
+    int getIndicatorColor(int position);
+
+    /**
+     * @return return the color of the divider drawn to the right of
+     *         {@code position}.
+     */
+    int getDividerColor(int position);
+
+}
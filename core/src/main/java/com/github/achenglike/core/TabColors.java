@@ -0,0 +1,50 @@
+package com.github.achenglike.core;
+
+/**
+ * Color helpers working on packed ARGB ints, with the same results as the
+ * {@code android.graphics.Color} based code they replace.
+ */
+public final class TabColors {
+
+    private TabColors() {
+    }
+
+    public static int red(int color) {
+        return (color >> 16) & 0xFF;
+    }
+
+    public static int green(int color) {
+        return (color >> 8) & 0xFF;
+    }
+
+    public static int blue(int color) {
+        return color & 0xFF;
+    }
+
+    public static int argb(int alpha, int red, int green, int blue) {
+        return (alpha << 24) | (red << 16) | (green << 8) | blue;
+    }
+
+    /**
+     * Set the alpha value of the {@code color} to be the given {@code alpha}
+     * value.
+     */
+    public static int setColorAlpha(int color, byte alpha) {
+        return argb(alpha & 0xFF, red(color), green(color), blue(color));
+    }
+
+    /**
+     * Blend {@code color1} and {@code color2} using the given ratio.
+     *
+     * @param ratio
+     *            of which to blend. 1.0 will return {@code color1}, 0.5 will
+     *            give an even blend, 0.0 will return {@code color2}.
+     */
+    public static int blendColors(int color1, int color2, float ratio) {
+        final float inverseRation = 1f - ratio;
+        float r = (red(color1) * ratio) + (red(color2) * inverseRation);
+        float g = (green(color1) * ratio) + (green(color2) * inverseRation);
+        float b = (blue(color1) * ratio) + (blue(color2) * inverseRation);
+        return argb(0xFF, (int) r, (int) g, (int) b);
+    }
+}
@@ -0,0 +1,244 @@
+package com.github.achenglike.core;
+
+/**
+ * Opt-in counters and timing histograms for the tab strip. An instance is
+ * only written to from the UI thread; use {@link #snapshot()} to read a
+ * consistent copy and {@link #reset()} to start a new sampling window.
+ *
+ * <p>While no metrics object is installed the views only pay a null check,
+ * so it is safe to ship and enable it for a fraction of sessions.
+ */
+public final class TabMetrics {
+
+    private final Histogram mPopulateNanos = new Histogram();
+    private final Histogram mDrawNanos = new Histogram();
+    private final Histogram mInvalidationsPerSwipe = new Histogram();
+    private final Histogram mScrollToCallsPerFrame = new Histogram();
+
+    private long mInvalidations;
+    private long mScrollToCalls;
+    private long mScrollEventsReceived;
+    private long mScrollEventsApplied;
+    private long mTabViewsInflated;
+    private long mTabViewsRecycled;
+
+    private long mSwipeInvalidationsStart = -1;
+    private long mFrameScrollToCallsStart;
+
+    public void recordPopulate(long nanos) {
+        mPopulateNanos.record(nanos);
+    }
+
+    public void recordDraw(long nanos) {
+        mDrawNanos.record(nanos);
+    }
+
+    public void recordInvalidation() {
+        mInvalidations++;
+    }
+
+    public void recordScrollTo() {
+        mScrollToCalls++;
+    }
+
+    /**
+     * A scroll callback arrived from the pager. It may be coalesced with
+     * later callbacks of the same frame.
+     */
+    public void recordScrollEventReceived() {
+        mScrollEventsReceived++;
+    }
+
+    public void recordTabViewInflated() {
+        mTabViewsInflated++;
+    }
+
+    public void recordTabViewRecycled() {
+        mTabViewsRecycled++;
+    }
+
+    /**
+     * Marks the start of a frame that applies the latest scroll event.
+     */
+    public void onScrollFrameStarted() {
+        mScrollEventsApplied++;
+        mFrameScrollToCallsStart = mScrollToCalls;
+    }
+
+    public void onScrollFrameFinished() {
+        mScrollToCallsPerFrame.record(mScrollToCalls - mFrameScrollToCallsStart);
+    }
+
+    public void onSwipeStarted() {
+        mSwipeInvalidationsStart = mInvalidations;
+    }
+
+    public void onSwipeFinished() {
+        if (mSwipeInvalidationsStart >= 0) {
+            mInvalidationsPerSwipe.record(mInvalidations - mSwipeInvalidationsStart);
+            mSwipeInvalidationsStart = -1;
+        }
+    }
+
+    public Snapshot snapshot() {
+        return new Snapshot(this);
+    }
+
+    public void reset() {
+        mPopulateNanos.reset();
+        mDrawNanos.reset();
+        mInvalidationsPerSwipe.reset();
+        mScrollToCallsPerFrame.reset();
+        mInvalidations = 0;
+        mScrollToCalls = 0;
+        mScrollEventsReceived = 0;
+        mScrollEventsApplied = 0;
+        mTabViewsInflated = 0;
+        mTabViewsRecycled = 0;
+        mSwipeInvalidationsStart = -1;
+        mFrameScrollToCallsStart = 0;
+    }
+
+    /**
+     * Immutable copy of the metrics at the time {@link #snapshot()} was
+     * called.
+     */
+    public static final class Snapshot {
+        public final Histogram populateNanos;
+        public final Histogram drawNanos;
+        public final Histogram invalidationsPerSwipe;
+        public final Histogram scrollToCallsPerFrame;
+        public final long invalidations;
+        public final long scrollToCalls;
+        public final long scrollEventsReceived;
+        public final long scrollEventsApplied;
+        public final long tabViewsInflated;
+        public final long tabViewsRecycled;
+
+        Snapshot(TabMetrics metrics) {
+            populateNanos = metrics.mPopulateNanos.copy();
+            drawNanos = metrics.mDrawNanos.copy();
+            invalidationsPerSwipe = metrics.mInvalidationsPerSwipe.copy();
+            scrollToCallsPerFrame = metrics.mScrollToCallsPerFrame.copy();
+            invalidations = metrics.mInvalidations;
+            scrollToCalls = metrics.mScrollToCalls;
+            scrollEventsReceived = metrics.mScrollEventsReceived;
+            scrollEventsApplied = metrics.mScrollEventsApplied;
+            tabViewsInflated = metrics.mTabViewsInflated;
+            tabViewsRecycled = metrics.mTabViewsRecycled;
+        }
+
+        /**
+         * @return scroll callbacks that were merged into a later one of the
+         *         same frame.
+         */
+        public long getScrollEventsCoalesced() {
+            return Math.max(0, scrollEventsReceived - scrollEventsApplied);
+        }
+
+        @Override
+        public String toString() {
+            return "TabMetrics{populate=" + populateNanos
+                    + ", draw=" + drawNanos
+                    + ", invalidationsPerSwipe=" + invalidationsPerSwipe
+                    + ", scrollToCallsPerFrame=" + scrollToCallsPerFrame
+                    + ", scrollEvents=" + scrollEventsApplied + "/" + scrollEventsReceived
+                    + ", tabViews=" + tabViewsInflated + " inflated, " + tabViewsRecycled + " recycled}";
+        }
+    }
+
+    /**
+     * Histogram with power of two buckets. Bucket {@code i} counts values
+     * in {@code [2^(i-1), 2^i)}, bucket 0 counts zeros.
+     */
+    public static final class Histogram {
+        public static final int BUCKET_COUNT = 64;
+
+        private final long[] mBuckets;
+        private long mCount;
+        private long mSum;
+        private long mMax;
+
+        Histogram() {
+            mBuckets = new long[BUCKET_COUNT];
+        }
+
+        private Histogram(Histogram other) {
+            mBuckets = other.mBuckets.clone();
+            mCount = other.mCount;
+            mSum = other.mSum;
+            mMax = other.mMax;
+        }
+
+        void record(long value) {
+            if (value < 0) {
+                value = 0;
+            }
+            int bucket = Math.min(BUCKET_COUNT - 1, 64 - Long.numberOfLeadingZeros(value));
+            mBuckets[bucket]++;
+            mCount++;
+            mSum += value;
+            if (value > mMax) {
+                mMax = value;
+            }
+        }
+
+        void reset() {
+            for (int i = 0; i < BUCKET_COUNT; i++) {
+                mBuckets[i] = 0;
+            }
+            mCount = 0;
+            mSum = 0;
+            mMax = 0;
+        }
+
+        Histogram copy() {
+            return new Histogram(this);
+        }
+
+        public long getCount() {
+            return mCount;
+        }
+
+        public long getSum() {
+            return mSum;
+        }
+
+        public long getMax() {
+            return mMax;
+        }
+
+        public double getMean() {
+            return mCount == 0 ? 0 : mSum / (double) mCount;
+        }
+
+        public long getBucketCount(int bucket) {
+            return mBuckets[bucket];
+        }
+
+        /**
+         * @return the exclusive upper bound of the bucket containing the
+         *         given percentile (0-100), or 0 if nothing was recorded.
+         */
+        public long getPercentileUpperBound(double percentile) {
+            if (mCount == 0) {
+                return 0;
+            }
+            long rank = (long) Math.ceil(mCount * percentile / 100d);
+            long seen = 0;
+            for (int i = 0; i < BUCKET_COUNT; i++) {
+                seen += mBuckets[i];
+                if (seen >= rank && mBuckets[i] > 0) {
+                    return i == 0 ? 1 : Math.min(mMax + 1, 1L << Math.min(i, 62));
+                }
+            }
+            return mMax + 1;
+        }
+
+        @Override
+        public String toString() {
+            return "{count=" + mCount + ", mean=" + (long) getMean() + ", p90<" + getPercentileUpperBound(90)
+                    + ", max=" + mMax + "}";
+        }
+    }
+}
@@ -0,0 +1,48 @@
+package com.github.achenglike.core;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+public class ColorBlendTableTest {
+
+    private static final int RED = 0xFFFF0000;
+    private static final int BLUE = 0xFF0000FF;
+    private static final int BLACK = 0xFF000000;
+
+    private ColorBlendTable table;
+    private SimpleTabColorizer colorizer;
+
+    @Before
+    public void setUp() {
+        colorizer = new SimpleTabColorizer();
+        colorizer.setIndicatorColors(RED, BLUE);
+        table = new ColorBlendTable(64);
+        table.setDefaultTextColor(BLACK);
+        table.setColorizer(colorizer);
+    }
+
+    @Test
+    public void indicatorColorMatchesDirectBlendAtSteps() {
+        assertEquals(RED, table.getIndicatorColor(0, 0f));
+        assertEquals(BLUE, table.getIndicatorColor(0, 1f));
+        assertEquals(TabColors.blendColors(BLUE, RED, 0.5f), table.getIndicatorColor(0, 0.5f));
+        // 第二对tab的颜色从蓝色过渡到红色
+        assertEquals(TabColors.blendColors(RED, BLUE, 0.25f), table.getIndicatorColor(3, 0.25f));
+    }
+
+    @Test
+    public void textColorFadesFromDefaultColor() {
+        assertEquals(BLACK, table.getTextColor(1, 0, 32));
+        assertEquals(BLUE, table.getTextColor(1, 32, 32));
+        assertEquals(TabColors.blendColors(RED, BLACK, 0.5f), table.getTextColor(2, 16, 32));
+    }
+
+    @Test
+    public void invalidatePicksUpNewPalette() {
+        colorizer.setIndicatorColors(BLUE);
+        table.invalidate();
+        assertEquals(BLUE, table.getIndicatorColor(0, 0.5f));
+    }
+}
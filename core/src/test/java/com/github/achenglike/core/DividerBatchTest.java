@@ -0,0 +1,60 @@
+package com.github.achenglike.core;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+public class DividerBatchTest {
+
+    private static final int GRAY = 0x20000000;
+    private static final int RED = 0xFFFF0000;
+
+    private SlidingTabGeometry geometry;
+    private SimpleTabColorizer colorizer;
+    private DividerBatch batch;
+
+    @Before
+    public void setUp() {
+        geometry = new SlidingTabGeometry();
+        geometry.layoutTabs(new int[]{100, 100, 100, 100, 100}, 5, 0, false);
+        colorizer = new SimpleTabColorizer();
+        batch = new DividerBatch();
+    }
+
+    @Test
+    public void dividersWithOneColorFormOneGroup() {
+        colorizer.setDividerColors(GRAY);
+        batch.rebuild(geometry, colorizer, 10f, 40f);
+        assertEquals(1, batch.getGroupCount());
+        assertEquals(GRAY, batch.getGroupColor(0));
+        assertEquals(4, batch.getGroupLineCount(0));
+        float[] lines = batch.getGroupLines(0);
+        assertEquals(100f, lines[0], 0f);
+        assertEquals(10f, lines[1], 0f);
+        assertEquals(100f, lines[2], 0f);
+        assertEquals(40f, lines[3], 0f);
+        assertEquals(400f, lines[12], 0f);
+    }
+
+    @Test
+    public void dividersAreGroupedByColorInOrder() {
+        colorizer.setDividerColors(GRAY, RED);
+        batch.rebuild(geometry, colorizer, 0f, 50f);
+        assertEquals(2, batch.getGroupCount());
+        assertEquals(RED, batch.getGroupColor(1));
+        assertEquals(2, batch.getGroupLineCount(1));
+        assertEquals(200f, batch.getGroupLines(1)[0], 0f);
+        assertEquals(400f, batch.getGroupLines(1)[4], 0f);
+    }
+
+    @Test
+    public void clipRangeSelectsIntersectingLines() {
+        colorizer.setDividerColors(GRAY);
+        batch.rebuild(geometry, colorizer, 0f, 50f);
+        // 裁剪区域[150, 300]内只有x为200和300的两条线
+        assertEquals(1, batch.findFirstLine(0, 150f));
+        assertEquals(3, batch.findLastLine(0, 300f));
+        assertEquals(4, batch.findFirstLine(0, 450f));
+    }
+}
@@ -0,0 +1,104 @@
+package com.github.achenglike.core;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class SlidingTabGeometryTest {
+
+    private SlidingTabGeometry geometry;
+    private SimpleTabColorizer colorizer;
+
+    @Before
+    public void setUp() {
+        geometry = new SlidingTabGeometry();
+        geometry.setIndicatorWidth(20);
+        colorizer = new SimpleTabColorizer();
+        colorizer.setIndicatorColors(0xFFFF0000, 0xFF0000FF);
+        colorizer.setDividerColors(0x20000000);
+        geometry.layoutTabs(new int[]{100, 100, 100}, 3, 0, false);
+    }
+
+    @Test
+    public void indicatorIsCenteredBelowTab() {
+        assertTrue(geometry.update(1, 0f, colorizer));
+        assertEquals(140, geometry.getIndicatorLeft());
+        assertEquals(160, geometry.getIndicatorRight());
+        assertEquals(0xFF0000FF, geometry.getIndicatorColor());
+    }
+
+    @Test
+    public void edgePaddingShiftsFirstAndLastIndicator() {
+        geometry.setEdgePadding(30, 10);
+        geometry.update(0, 0f, colorizer);
+        assertEquals(55, geometry.getIndicatorLeft());
+        geometry.update(2, 0f, colorizer);
+        assertEquals(235, geometry.getIndicatorLeft());
+    }
+
+    @Test
+    public void indicatorStretchesBetweenTabs() {
+        geometry.update(0, 0.5f, colorizer);
+        // 左边缘按accelerate曲线移动，右边缘按decelerate曲线移动
+        assertEquals(65, geometry.getIndicatorLeft());
+        assertEquals(135, geometry.getIndicatorRight());
+        assertEquals(TabColors.blendColors(0xFF0000FF, 0xFFFF0000, 0.5f), geometry.getIndicatorColor());
+        assertEquals(SlidingTabGeometry.TEXT_FADE_STEPS / 2, geometry.getTextFadeLevel());
+    }
+
+    @Test
+    public void slideMotionKeepsIndicatorWidth() {
+        geometry.setIndicatorMotion(IndicatorMotion.SLIDE);
+        geometry.update(0, 0.3f, colorizer);
+        assertEquals(20, geometry.getIndicatorRight() - geometry.getIndicatorLeft());
+    }
+
+    @Test
+    public void motionTableFollowsCurve() {
+        IndicatorMotionTable table = new IndicatorMotionTable(IndicatorMotion.ELASTIC);
+        for (int i = 0; i <= 100; i++) {
+            float offset = i / 100f;
+            assertEquals(IndicatorMotion.ELASTIC.getRightFraction(offset), table.getRightFraction(offset), 0.01f);
+        }
+        assertEquals(1f, table.getLeftFraction(1.5f), 0f);
+    }
+
+    @Test
+    public void tabIndicatorWidthsOverrideFixedWidth() {
+        geometry.setTabIndicatorWidths(new int[]{60, 0});
+        geometry.update(0, 0f, colorizer);
+        assertEquals(20, geometry.getIndicatorLeft());
+        assertEquals(80, geometry.getIndicatorRight());
+        // 没有文字宽度的tab使用固定宽度
+        geometry.update(1, 0f, colorizer);
+        assertEquals(140, geometry.getIndicatorLeft());
+        geometry.update(2, 0f, colorizer);
+        assertEquals(240, geometry.getIndicatorLeft());
+    }
+
+    @Test
+    public void updateFailsOutsideTabRange() {
+        assertFalse(geometry.update(3, 0f, colorizer));
+        geometry.setTabCount(0);
+        assertFalse(geometry.update(0, 0f, colorizer));
+    }
+
+    @Test
+    public void layoutSharesExtraSpaceLikeWeights() {
+        assertEquals(310, geometry.layoutTabs(new int[]{100, 100, 100}, 3, 310, true));
+        assertEquals(104, geometry.getTabRight(0));
+        assertEquals(207, geometry.getTabRight(1));
+        assertEquals(1, geometry.findTabAt(150));
+        assertEquals(2, geometry.findTabAt(1000));
+    }
+
+    @Test
+    public void scrollTargetKeepsTitleOffsetAfterFirstTab() {
+        assertEquals(0, SlidingTabGeometry.computeScrollTarget(0, 0, 0, 24));
+        assertEquals(76, SlidingTabGeometry.computeScrollTarget(100, 1, 0, 24));
+        assertEquals(26, SlidingTabGeometry.computeScrollTarget(0, 0, 50, 24));
+    }
+}
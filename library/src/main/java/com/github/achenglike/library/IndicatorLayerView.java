@@ -0,0 +1,59 @@
+package com.github.achenglike.library;
+
+import android.content.Context;
+import android.graphics.Canvas;
+import android.graphics.Paint;
+import android.graphics.RectF;
+import android.view.View;
+
+/**
+ * The selected tab indicator as a view of its own. It is drawn once at its
+ * base width and then only moved and stretched through {@code translationX}
+ * and {@code scaleX}, which a hardware accelerated window applies without
+ * redrawing the view or its parent. Only a color change redraws it.
+ */
+class IndicatorLayerView extends View {
+
+    private final Paint mPaint = new Paint();
+    private final RectF mRect = new RectF();
+    private float mRadius;
+
+    IndicatorLayerView(Context context) {
+        super(context);
+        // 以左边缘为缩放中心，translationX即为标志条的左边界
+        setPivotX(0);
+    }
+
+    void setRadius(float radius) {
+        if (mRadius != radius) {
+            mRadius = radius;
+            invalidate();
+        }
+    }
+
+    void setColor(int color) {
+        if (mPaint.getColor() != color) {
+            mPaint.setColor(color);
+            invalidate();
+        }
+    }
+
+    /**
+     * Moves the indicator so that it covers {@code [left, right)} of its
+     * parent.
+     */
+    void moveTo(int left, int right) {
+        final int baseWidth = getWidth();
+        if (baseWidth <= 0) {
+            return;
+        }
+        setTranslationX(left - getLeft());
+        setScaleX((right - left) / (float) baseWidth);
+    }
+
+    @Override
+    protected void onDraw(Canvas canvas) {
+        mRect.set(0, 0, getWidth(), getHeight());
+        canvas.drawRoundRect(mRect, mRadius, mRadius, mPaint);
+    }
+}
@@ -1,49 +1,120 @@
 package com.github.achenglike.library;
 
+import android.animation.ValueAnimator;
 import android.content.Context;
-import android.content.res.TypedArray;
+import android.database.DataSetObserver;
+import android.graphics.Paint;
+import android.graphics.Typeface;
+import android.graphics.drawable.ColorDrawable;
 import android.graphics.drawable.Drawable;
 import android.os.Build;
+import android.os.Handler;
+import android.os.Looper;
 import android.support.v4.view.PagerAdapter;
+import android.support.v4.view.ViewCompat;
 import android.support.v4.view.ViewPager;
+import android.text.BoringLayout;
+import android.text.Layout;
+import android.text.StaticLayout;
+import android.text.TextPaint;
+import android.text.Spanned;
+import android.text.TextUtils;
 import android.util.AttributeSet;
+import android.util.SparseArray;
+import android.util.SparseBooleanArray;
+import android.util.SparseIntArray;
 import android.util.TypedValue;
 import android.view.Gravity;
 import android.view.LayoutInflater;
 import android.view.View;
+import android.view.ViewGroup;
 import android.widget.HorizontalScrollView;
 import android.widget.LinearLayout;
 import android.widget.TextView;
 
+import com.github.achenglike.core.IndicatorMotion;
+import com.github.achenglike.core.SlidingTabGeometry;
+import com.github.achenglike.core.TabColors;
+import com.github.achenglike.core.TabMetrics;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+
 public class SlidingTabLayout extends HorizontalScrollView {
 
     /**
      * Allows complete control over the colors drawn in the tab layout. Set with
      * {@link #setCustomTabColorizer(TabColorizer)}.
      */
-    public interface TabColorizer {
+    public interface TabColorizer extends com.github.achenglike.core.TabColorizer {
 
         /**
          * @return return the color of the indicator used when {@code position}
          *         is selected.
          */
+        @Override
         int getIndicatorColor(int position);
 
         /**
          * @return return the color of the divider drawn to the right of
          *         {@code position}.
          */
+        @Override
         int getDividerColor(int position);
 
     }
 
+    /**
+     * Scroll position and selection of a tab layout, saved by
+     * {@link #unbind(BindState)} and restored by
+     * {@link #bind(ViewPager, BindState)}. Keep one instance per bound item,
+     * for example per feed card, and reuse it for every bind.
+     */
+    public static final class BindState {
+        int mScrollX = -1;
+        int mSelectedPosition = -1;
+
+        /**
+         * @return the saved horizontal scroll position, or -1 if nothing
+         *         was saved.
+         */
+        public int getScrollX() {
+            return mScrollX;
+        }
+
+        /**
+         * @return the saved selected tab, or -1 if nothing was saved.
+         */
+        public int getSelectedPosition() {
+            return mSelectedPosition;
+        }
+
+        public void clear() {
+            mScrollX = -1;
+            mSelectedPosition = -1;
+        }
+    }
+
     private static final int TITLE_OFFSET_DIPS = 24;
     // private static final int TAB_VIEW_VERTICAL_PADDING_DIPS = 8;
-    private static final int TAB_VIEW_HORIZONTAL_PADDING_DIPS = 10;
-    private static final int TAB_VIEW_TEXT_SIZE_SP = 14;
-    private static final float DEAULT_TAB_HEIGHT = 57;
 
-    private static final int DEFAULT_TEXT_COLOR = 0xFF000000;
+    /**
+     * 虚拟化模式下可见窗口两侧额外保留的tab数量
+     */
+    static final int VIRTUAL_WINDOW_MARGIN_TABS = 2;
+
+    /**
+     * 角标超过这个数字时显示为"99+"
+     */
+    private static final int MAX_BADGE_COUNT = 99;
+    private static final String BADGE_OVERFLOW_LABEL = MAX_BADGE_COUNT + "+";
+    /**
+     * 角标文字只在主线程使用，每个数字只生成一次
+     */
+    private static final String[] sBadgeLabels = new String[MAX_BADGE_COUNT + 1];
 
     private float mTabLayoutHeight;
 
@@ -56,11 +127,126 @@ public class SlidingTabLayout extends HorizontalScrollView {
     private int mTabViewLayoutId;
     private int mTabViewTextViewId;
 
+    private boolean mVirtualizedTabs;
+    /**
+     * 延迟获取标题：只为可见窗口内的tab调用getPageTitle，结果缓存到适配器数据变化为止
+     */
+    private boolean mLazyTitles;
+    private final SparseArray<CharSequence> mResolvedTitles = new SparseArray<>();
+
+    private Typeface mTitleTypeface;
+    /**
+     * 设置后默认tab的标题在此Executor上预先排版，完成后在主线程一次性添加所有tab，期间strip显示骨架占位
+     */
+    private Executor mTitleExecutor;
+    private final TabTitlePrecomputer.Callback mTitlePrecomputeCallback = new TitlePrecomputeCallback();
+    private int mTitleGeneration;
+    private boolean mTitlesPending;
+    private int mVirtualFirstTab = 0;
+    private int mVirtualLastTab = -1;
+    /**
+     * 回收的tab View。默认tab的样式取决于本控件的属性，只放在私有的回收池中；自定义布局的tab可以与其他控件共享回收池
+     */
+    private final TabViewPool mDefaultTabViewPool = new TabViewPool();
+    private TabViewPool mTabViewPool = mDefaultTabViewPool;
+    private final TabClickListener mTabClickListener = new TabClickListener();
+
+    /**
+     * 扁平化渲染：不创建tab View，strip直接绘制所有标题、标志条和分割线
+     */
+    private boolean mFlattenedTabs;
+
+    /**
+     * 延迟创建tab：setViewPager时控件不可见则等到第一次onMeasure或可见状态下attach时再创建
+     */
+    private boolean mDeferredTabs;
+
+    /**
+     * 子类重写createDefaultTabView后tab可能带有图标、最小宽度或文字变换，不能只按文字宽度计算tab宽度
+     */
+    private final boolean mDefaultTabViewOverridden = overridesDefaultTabView(getClass());
+    private boolean mPopulatePending;
+    private boolean mScrollToCurrentOnLayout;
+
+    /**
+     * 任意线程提交的tab更新，同一个tab的同一项只保留最后一次的值，每帧在主线程统一应用
+     */
+    private final Object mTabUpdatesLock = new Object();
+    private TabUpdates mPendingTabUpdates = new TabUpdates();
+    /**
+     * 主线程应用更新时与mPendingTabUpdates交换，两份缓冲轮流使用，不需要每帧分配
+     */
+    private TabUpdates mApplyingTabUpdates = new TabUpdates();
+    private final AtomicBoolean mTabUpdatesScheduled = new AtomicBoolean();
+    /**
+     * 控件没有attach时在后台线程调用post会丢失，所以通过主线程的Handler转到主线程
+     */
+    private final Handler mMainHandler = new Handler(Looper.getMainLooper());
+    private final Runnable mScheduleTabUpdatesRunnable = new Runnable() {
+        @Override
+        public void run() {
+            ViewCompat.postOnAnimation(SlidingTabLayout.this, mApplyTabUpdatesRunnable);
+        }
+    };
+    private final Runnable mApplyTabUpdatesRunnable = new Runnable() {
+        @Override
+        public void run() {
+            applyPendingTabUpdates();
+        }
+    };
+
+    /**
+     * 已经应用的tab状态，新绑定的tab View（虚拟化窗口、回收复用）需要恢复这些状态
+     */
+    private final SparseArray<CharSequence> mTitleOverrides = new SparseArray<>();
+    private final SparseIntArray mTabBadges = new SparseIntArray();
+    private final SparseBooleanArray mDisabledTabs = new SparseBooleanArray();
+    private int mTabBadgeViewId;
+
+    /**
+     * 当前tab上显示的标题，用于数据变化时做增量比较
+     */
+    private final List<CharSequence> mTabTitles = new ArrayList<>();
+    private final DataSetObserver mPagerAdapterObserver = new PagerAdapterObserver();
+    private PagerAdapter mPagerAdapter;
+
+    private static final ViewPager.OnPageChangeListener[] NO_PAGE_CHANGE_LISTENERS =
+            new ViewPager.OnPageChangeListener[0];
+
     private ViewPager mViewPager;
+    private final ViewPager.OnPageChangeListener mInternalPageChangeListener = new InternalViewPagerListener();
     private ViewPager.OnPageChangeListener mViewPagerPageChangeListener;
+    /**
+     * 写时复制：增删监听时替换整个数组，分发时直接遍历当前数组，不分配迭代器，分发过程中移除监听也是安全的
+     */
+    private ViewPager.OnPageChangeListener[] mPageChangeListeners = NO_PAGE_CHANGE_LISTENERS;
+
+    private TabMetrics mMetrics;
+
+    /**
+     * 每帧的第一次onPageScrolled立即刷新标志条和滚动位置，同一帧内之后的事件只记录最后一次的位置，在帧回调中统一刷新。
+     * mScrollFrameScheduled表示这一帧已经刷新过，帧回调执行时清除
+     */
+    private int mPendingScrollPosition = -1;
+    private float mPendingScrollOffset;
+    private boolean mScrollFrameScheduled;
+    private int mLastScrollTargetX = Integer.MIN_VALUE;
+    private int mLastScrollX = Integer.MIN_VALUE;
+    private final Runnable mScrollFrameRunnable = new Runnable() {
+        @Override
+        public void run() {
+            mScrollFrameScheduled = false;
+            applyPendingScroll();
+        }
+    };
 
     private final SlidingTabStrip mTabStrip;
 
+    /**
+     * bind时恢复的滚动位置，strip还没有布局时在下一次onLayout中生效
+     */
+    private int mRestoreScrollX = -1;
+
     /**
      * 标题文字
      */
@@ -76,6 +262,12 @@ public class SlidingTabLayout extends HorizontalScrollView {
      */
     private int selectedIndicatorColor;
 
+    /**
+     * 配色切换的渐变动画，每一帧复用同一个监听和颜色数组
+     */
+    private ValueAnimator mPaletteAnimator;
+    private final PaletteCrossfade mPaletteCrossfade = new PaletteCrossfade();
+
     public SlidingTabLayout(Context context) {
         this(context, null);
     }
@@ -89,20 +281,21 @@ public class SlidingTabLayout extends HorizontalScrollView {
 
         float density = getResources().getDisplayMetrics().density;
 
-        TypedArray styled = context.obtainStyledAttributes(attrs, R.styleable.SlidingTab, 0, 0);
-        mTitleTextSize = styled.getDimensionPixelSize(R.styleable.SlidingTab_title_text_size,
-                sp2px(context, TAB_VIEW_TEXT_SIZE_SP));
-        mTitleTabHorizontalMatch = styled.getBoolean(R.styleable.SlidingTab_title_tab_horizontal_match, true);
-        mHorizontalPadding = styled.getDimension(R.styleable.SlidingTab_title_tab_horzontal_padding,
-                TAB_VIEW_HORIZONTAL_PADDING_DIPS * density);
-        mDefaultTextColor = styled.getColor(R.styleable.SlidingTab_title_text_default_color, DEFAULT_TEXT_COLOR);
-        mTabLayoutHeight = styled.getDimension(R.styleable.SlidingTab_tab_height, DEAULT_TAB_HEIGHT * density);
-        mBottomIndicatorColor = styled.getColor(R.styleable.SlidingTab_bottom_indicator_color, 0);
-        selectedIndicatorColor = styled.getColor(R.styleable.SlidingTab_selected_text_color, DEFAULT_TEXT_COLOR);
-        mLeftPadding = styled.getDimension(R.styleable.SlidingTab_left_padding, 0);
-        mRightPadding = styled.getDimension(R.styleable.SlidingTab_right_padding, 0);
-
-        styled.recycle();
+        // 自定义属性只解析一次，与SlidingTabStrip共用
+        SlidingTabStyle style = SlidingTabStyle.obtain(context, attrs);
+        mTitleTextSize = style.titleTextSize;
+        mTitleTabHorizontalMatch = style.titleTabHorizontalMatch;
+        mHorizontalPadding = style.horizontalPadding;
+        mDefaultTextColor = style.defaultTextColor;
+        mTabLayoutHeight = style.tabHeight;
+        mBottomIndicatorColor = style.bottomIndicatorColor;
+        selectedIndicatorColor = style.selectedTextColor;
+        mLeftPadding = style.leftPadding;
+        mRightPadding = style.rightPadding;
+        mVirtualizedTabs = style.virtualizedTabs;
+        mLazyTitles = style.lazyTitles;
+        mFlattenedTabs = style.flattenedTabs;
+        mDeferredTabs = style.deferredTabs;
 
         // Disable the Scroll Bar
         setHorizontalScrollBarEnabled(false);
@@ -113,10 +306,11 @@ public class SlidingTabLayout extends HorizontalScrollView {
         mTitleOffset = (int) (TITLE_OFFSET_DIPS * density);
 
         // 在构造中主要是添加一个LinearLayout到HorizontalScrollView当中
-        mTabStrip = new SlidingTabStrip(context, attrs);
+        mTabStrip = new SlidingTabStrip(context, attrs, style);
         mTabStrip.setDefaultTextColor(mDefaultTextColor);
         mTabStrip.setBottomIndicatorColor(mBottomIndicatorColor);
         mTabStrip.setSelectedIndicatorColors(selectedIndicatorColor);
+        mTabStrip.setOnTabClickListener(mTabClickListener);
         addView(mTabStrip, LinearLayout.LayoutParams.MATCH_PARENT, LinearLayout.LayoutParams.WRAP_CONTENT);
     }
 
@@ -126,6 +320,9 @@ public class SlidingTabLayout extends HorizontalScrollView {
      * If you only require simple custmisation then you can use
      * {@link #setSelectedIndicatorColors(int...)} and
      * {@link #setDividerColors(int...)} to achieve similar effects.
+     *
+     * <p>Divider colors are read when the tabs are laid out or a colorizer is
+     * set, so set the colorizer again after its divider colors change.
      */
     public void setCustomTabColorizer(TabColorizer tabColorizer) {
         mTabStrip.setCustomTabColorizer(tabColorizer);
@@ -140,6 +337,42 @@ public class SlidingTabLayout extends HorizontalScrollView {
         mTabStrip.setSelectedIndicatorColors(colors);
     }
 
+    /**
+     * Enables a precomputed color blend table with {@code steps} entries per
+     * pair of adjacent tabs, for example 64 or 256. It is built lazily when
+     * the colors or the {@link TabColorizer} change, and turns the per-frame
+     * indicator and text color work into array reads. Pass 0 to disable it.
+     * A custom {@link TabColorizer} whose colors change must be set again to
+     * refresh the table.
+     */
+    public void setColorBlendSteps(int steps) {
+        mTabStrip.setColorBlendSteps(steps);
+    }
+
+    /**
+     * Sets how the indicator edges move while the pager is dragged, for
+     * example {@link IndicatorMotion#SLIDE}. The default is
+     * {@link IndicatorMotion#STRETCH}. The curves are sampled into a lookup
+     * table here, not on every frame.
+     */
+    public void setIndicatorMotion(IndicatorMotion motion) {
+        mTabStrip.setIndicatorMotion(motion);
+    }
+
+    /**
+     * When enabled the indicator is a separate view drawn into its own
+     * display list and moved with {@code translationX}/{@code scaleX} while
+     * the pager is dragged, so neither the strip nor the tab views are
+     * redrawn per frame. The selected text color then switches when the
+     * indicator passes the middle of two tabs instead of crossfading, and
+     * the rounded corners stretch with the indicator. Without hardware
+     * acceleration, or below API 18, the indicator is drawn on the canvas
+     * as usual.
+     */
+    public void setIndicatorLayerEnabled(boolean enabled) {
+        mTabStrip.setIndicatorLayerEnabled(enabled);
+    }
+
     public void setBottomIndicatorColor(int color) {
         mBottomIndicatorColor = color;
         if (mTabStrip != null) {
@@ -163,210 +396,1584 @@ public class SlidingTabLayout extends HorizontalScrollView {
      * {@link ViewPager.OnPageChangeListener} through this method. This is so
      * that the layout can update it's scroll position correctly.
      *
+     * <p>Replaces the listener previously set through this method, listeners
+     * added with {@link #addOnPageChangeListener(ViewPager.OnPageChangeListener)}
+     * are kept.
+     *
      * @see ViewPager#setOnPageChangeListener(ViewPager.OnPageChangeListener)
      */
     public void setOnPageChangeListener(ViewPager.OnPageChangeListener listener) {
+        if (mViewPagerPageChangeListener != null) {
+            removeOnPageChangeListener(mViewPagerPageChangeListener);
+        }
         mViewPagerPageChangeListener = listener;
+        if (listener != null) {
+            addOnPageChangeListener(listener);
+        }
+    }
+
+    /**
+     * Adds a listener that is notified after this layout has handled a page
+     * change of the associated {@link ViewPager}. Listeners are called in the
+     * order they were added. Listeners added directly to the
+     * {@link ViewPager} keep working as well.
+     */
+    public void addOnPageChangeListener(ViewPager.OnPageChangeListener listener) {
+        if (listener == null) {
+            return;
+        }
+        final ViewPager.OnPageChangeListener[] listeners = mPageChangeListeners;
+        final ViewPager.OnPageChangeListener[] newListeners = Arrays.copyOf(listeners, listeners.length + 1);
+        newListeners[listeners.length] = listener;
+        mPageChangeListeners = newListeners;
     }
 
     /**
-     * Sets the associated view pager. Note that the assumption here is that the
-     * pager content (number of tabs and tab titles) does not change after this
-     * call has been made.
+     * Removes a listener added with
+     * {@link #addOnPageChangeListener(ViewPager.OnPageChangeListener)}. It is
+     * safe to call this from a listener callback, the event being dispatched
+     * still reaches the listeners registered when it started.
+     */
+    public void removeOnPageChangeListener(ViewPager.OnPageChangeListener listener) {
+        final ViewPager.OnPageChangeListener[] listeners = mPageChangeListeners;
+        for (int i = 0; i < listeners.length; i++) {
+            if (listeners[i] == listener) {
+                if (listeners.length == 1) {
+                    mPageChangeListeners = NO_PAGE_CHANGE_LISTENERS;
+                } else {
+                    final ViewPager.OnPageChangeListener[] newListeners =
+                            new ViewPager.OnPageChangeListener[listeners.length - 1];
+                    System.arraycopy(listeners, 0, newListeners, 0, i);
+                    System.arraycopy(listeners, i + 1, newListeners, i, listeners.length - i - 1);
+                    mPageChangeListeners = newListeners;
+                }
+                if (listener == mViewPagerPageChangeListener) {
+                    mViewPagerPageChangeListener = null;
+                }
+                return;
+            }
+        }
+    }
+
+    /**
+     * Sets the associated view pager. Later changes of the number of tabs or
+     * the tab titles are picked up through
+     * {@link PagerAdapter#notifyDataSetChanged()}, only the changed tabs are
+     * updated.
      */
     public void setViewPager(ViewPager viewPager) {
-        mTabStrip.removeAllViews();
+        resetTabStrip();
+        detachViewPager();
+        clearTabState();
 
         mViewPager = viewPager;
         if (viewPager != null) {
-            viewPager.setOnPageChangeListener(new InternalViewPagerListener());
-            populateTabStrip();
+            attachViewPager(viewPager);
+            requestPopulate();
         }
     }
 
-    public void setDefaultTextColor(int color) {
-        mDefaultTextColor = color;
-        if (mTabStrip != null) {
-            mTabStrip.setDefaultTextColor(color);
-            mTabStrip.invalidate();
+    /**
+     * Attaches this layout to {@code viewPager} like
+     * {@link #setViewPager(ViewPager)}, but keeps the existing tab views:
+     * tabs are retitled in place and only the difference in tab count is
+     * added or removed. The scroll position and selected tab saved in
+     * {@code state} are restored without waiting for a layout pass. Only the
+     * tab strip is restored; the current item of {@code viewPager} is left
+     * unchanged, so call {@link ViewPager#setCurrentItem(int, boolean)}
+     * before binding to restore the page as well. This is meant for tab
+     * layouts in {@code RecyclerView} rows that are bound to a different
+     * pager on every bind.
+     *
+     * <p>Virtualized, lazy, flattened and precomputed tabs are rebuilt as
+     * with {@link #setViewPager(ViewPager)}.
+     *
+     * @param state the state saved by {@link #unbind(BindState)}, or
+     *              {@code null} to scroll to the current page
+     */
+    public void bind(ViewPager viewPager, BindState state) {
+        detachViewPager();
+        clearTabState();
+        mViewPager = viewPager;
+        if (viewPager == null) {
+            return;
+        }
+        final PagerAdapter adapter = viewPager.getAdapter();
+        attachViewPager(viewPager);
+
+        if (canRebindInPlace()) {
+            rebindTabStrip(adapter);
+        } else {
+            resetTabStrip();
+            requestPopulate();
         }
+        restoreBindState(state);
     }
 
     /**
-     * Set the custom layout to be inflated for the tab views.
+     * Detaches this layout from its pager and saves the scroll position and
+     * selection into {@code outState}. The tab views are kept for the next
+     * {@link #bind(ViewPager, BindState)}.
      *
-     * @param layoutResId Layout id to be inflated
-     * @param textViewId id of the {@link TextView} in the inflated view
+     * @param outState where to save the state, may be {@code null}
      */
-    public void setCustomTabView(int layoutResId, int textViewId) {
-        mTabViewLayoutId = layoutResId;
-        mTabViewTextViewId = textViewId;
+    public void unbind(BindState outState) {
+        if (outState != null) {
+            outState.mScrollX = mRestoreScrollX >= 0 ? mRestoreScrollX : getScrollX();
+            outState.mSelectedPosition = mViewPager != null ? mViewPager.getCurrentItem() : -1;
+        }
+        detachViewPager();
+        mViewPager = null;
+        mRestoreScrollX = -1;
+        mPopulatePending = false;
     }
 
     /**
-     * Create a default view to be used for tabs. This is called if a custom tab
-     * view is not set via {@link #setCustomTabView(int, int)}.
+     * 移除所有tab，并丢弃还没有完成的后台排版结果
      */
-    protected TextView createDefaultTabView(Context context) {
-        TextView textView = new TextView(context);
-        textView.setGravity(Gravity.CENTER);
-        textView.setTextSize(TypedValue.COMPLEX_UNIT_PX, mTitleTextSize);
-        textView.setSingleLine(true);
-        textView.setTextColor(mDefaultTextColor);
-        // textView.setTypeface(Typeface.DEFAULT_BOLD);
-
-        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.HONEYCOMB) {
-            // If we're running on Honeycomb or newer, then we can use the
-            // Theme's
-            // selectableItemBackground to ensure that the View has a pressed
-            // state
-            TypedValue outValue = new TypedValue();
-            getContext().getTheme().resolveAttribute(android.R.attr.selectableItemBackground, outValue, true);
-            textView.setBackgroundResource(outValue.resourceId);
-        }
+    private void resetTabStrip() {
+        recycleVirtualTabs();
+        recycleAllTabs();
+        mTabTitles.clear();
+        mResolvedTitles.clear();
+        mTitleGeneration++;
+        mTitlesPending = false;
+        mTabStrip.setSkeletonTabs(0, 0);
+        mPopulatePending = false;
+    }
 
-        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.ICE_CREAM_SANDWICH) {
-            // If we're running on ICS or newer, enable all-caps to match the
-            // Action Bar tab style
-            // textView.setAllCaps(true);
+    /**
+     * 延迟模式下控件还没有显示时只记录需要创建tab，其余情况立即创建
+     */
+    private void requestPopulate() {
+        if (mDeferredTabs && !(isShown() && getWidth() > 0)) {
+            mPopulatePending = true;
+            // 只设置当前页的选中状态，tab在显示前创建
+            mTabStrip.onViewPagerSelected(mViewPager.getCurrentItem());
+            return;
         }
+        populateTabStrip();
+    }
 
-        int height = (int) (mTabLayoutHeight);
-        int horizontalPadding = (int) mHorizontalPadding;
-        textView.setBackgroundResource(android.R.color.transparent);
-        textView.setPadding(horizontalPadding, 0, horizontalPadding, 0);
-        if (mTitleTabHorizontalMatch) {
-            textView.setLayoutParams(new LinearLayout.LayoutParams(LinearLayout.LayoutParams.WRAP_CONTENT, height, 1.0f));
-        } else {
-            textView.setLayoutParams(new LinearLayout.LayoutParams(LinearLayout.LayoutParams.WRAP_CONTENT, height));
+    private void populatePendingTabs() {
+        if (!mPopulatePending || mViewPager == null) {
+            return;
         }
-
-        return textView;
+        mPopulatePending = false;
+        populateTabStrip();
+        // 新建的tab还没有位置，布局完成后再滚动到当前页
+        mScrollToCurrentOnLayout = true;
     }
 
-    private void populateTabStrip() {
-        final PagerAdapter adapter = mViewPager.getAdapter();
-        final OnClickListener tabClickListener = new TabClickListener();
-
-        for (int i = 0; i < adapter.getCount(); i++) {
-            View tabView = null;
-            TextView tabTitleView = null;
+    private void attachViewPager(ViewPager viewPager) {
+        // 不使用setOnPageChangeListener，避免覆盖应用已经设置给ViewPager的监听
+        viewPager.addOnPageChangeListener(mInternalPageChangeListener);
+        mPagerAdapter = viewPager.getAdapter();
+        mPagerAdapter.registerDataSetObserver(mPagerAdapterObserver);
+    }
 
-            if (mTabViewLayoutId != 0) {
-                // If there is a custom tab view layout id set, try and inflate
-                // it
-                tabView = LayoutInflater.from(getContext()).inflate(mTabViewLayoutId, mTabStrip, false);
-                tabTitleView = (TextView) tabView.findViewById(mTabViewTextViewId);
-            }
+    private void detachViewPager() {
+        if (mPagerAdapter != null) {
+            mPagerAdapter.unregisterDataSetObserver(mPagerAdapterObserver);
+            mPagerAdapter = null;
+        }
+        if (mViewPager != null) {
+            mViewPager.removeOnPageChangeListener(mInternalPageChangeListener);
+        }
+        // 旧ViewPager还没有应用的滑动位置不再有效
+        mPendingScrollPosition = -1;
+        if (mScrollFrameScheduled) {
+            removeCallbacks(mScrollFrameRunnable);
+            mScrollFrameScheduled = false;
+        }
+        mLastScrollTargetX = Integer.MIN_VALUE;
+        mLastScrollX = Integer.MIN_VALUE;
+    }
 
-            if (tabView == null) {
-                tabView = createDefaultTabView(getContext());
+    /**
+     * @return true if the current tabs are real views of the current tab
+     *         layout that can be retitled in place
+     */
+    private boolean canRebindInPlace() {
+        if (mFlattenedTabs || isVirtualizedTabs() || mTabStrip.isVirtualized() || mTitlesPending) {
+            return false;
+        }
+        final int childCount = mTabStrip.getChildCount();
+        if (childCount == 0 || childCount != mTabTitles.size()) {
+            return false;
+        }
+        for (int i = 0; i < childCount; i++) {
+            TabViewHolder holder = TabViewHolder.get(mTabStrip.getChildAt(i));
+            if (holder == null || holder.layoutResId != mTabViewLayoutId) {
+                return false;
             }
+        }
+        return true;
+    }
 
-            if (tabTitleView == null && TextView.class.isInstance(tabView)) {
-                tabTitleView = (TextView) tabView;
+    /**
+     * 复用已有的tab View：数量相同的部分只修改标题，多出的tab从末尾移除，不足的tab在末尾添加
+     */
+    private void rebindTabStrip(PagerAdapter adapter) {
+        final int count = adapter.getCount();
+        final int oldCount = mTabStrip.getChildCount();
+        for (int i = oldCount - 1; i >= count; i--) {
+            View tabView = mTabStrip.getChildAt(i);
+            mTabStrip.removeViewAt(i);
+            recycleTabView(tabView);
+            mTabTitles.remove(i);
+        }
+        for (int i = 0; i < count; i++) {
+            final CharSequence title = adapter.getPageTitle(i);
+            if (i >= oldCount) {
+                View tabView = obtainTabView();
+                bindTabView(tabView, i, count, title);
+                mTabStrip.addView(tabView);
+                mTabTitles.add(title);
+                continue;
             }
-
-            if (tabTitleView != null) {
-                tabTitleView.setText(adapter.getPageTitle(i));
+            View tabView = mTabStrip.getChildAt(i);
+            if (!isSameTitle(mTabTitles.get(i), title)) {
+                // 文字相同时不会调用setText，宽度不变的标题不会触发重新布局
+                TextView tabTitleView = findTabTitleView(tabView);
+                if (tabTitleView != null) {
+                    mTabStrip.setTabText(tabView, tabTitleView, title);
+                }
+                mTabTitles.set(i, title);
             }
-            tabView.setOnClickListener(tabClickListener);
-
-            int horizontalPadding = (int) mHorizontalPadding; //每个tab左右padding
-
-            //by tiancuicui 2017.08.24 目前免费课程分类页面设置了左右的padding
-            //添加整个slidingTabLayout左边padding
-            if(i == 0 && mLeftPadding > 0) {
-                int leftPadding = (int) mLeftPadding; //slidingTabLayout左边padding
-                tabView.setPadding(horizontalPadding + leftPadding, 0, horizontalPadding, 0);
+            // 数量变化时原来和现在的最后一个tab的padding需要重新设置
+            if (count != oldCount && (i == oldCount - 1 || i == count - 1)) {
+                bindTabPadding(tabView, i, count, true);
             }
+            bindTabState(tabView, i);
+        }
+    }
 
-            //添加整个slidingTabLayout右边padding
-            if(i == adapter.getCount() - 1 && mRightPadding > 0) {
-                int rightPadding = (int) mRightPadding; //slidingTabLayout右边padding
-                tabView.setPadding(horizontalPadding, 0, horizontalPadding + rightPadding, 0);
-            }
+    private void restoreBindState(BindState state) {
+        // 只恢复strip的选中状态，不修改应用的ViewPager，否则它自己的监听也会收到onPageSelected
+        final int count = mViewPager.getAdapter().getCount();
+        final int selected = state != null && state.mSelectedPosition >= 0 && state.mSelectedPosition < count
+                ? state.mSelectedPosition : mViewPager.getCurrentItem();
+        mTabStrip.onViewPagerSelected(selected);
+        mTabStrip.onViewPagerPageChanged(selected, 0f);
+        if (state == null || state.mScrollX < 0) {
+            mRestoreScrollX = -1;
+            scrollToTab(selected, 0);
+            return;
+        }
+        if (mTabStrip.getWidth() > 0 && !mTabStrip.isLayoutRequested()) {
+            // tab的宽度没有变化，直接滚动，不需要等待布局
+            mRestoreScrollX = -1;
+            scrollTo(state.mScrollX, 0);
+        } else {
+            mRestoreScrollX = state.mScrollX;
+        }
+    }
 
-            mTabStrip.addView(tabView);
+    public void setDefaultTextColor(int color) {
+        mDefaultTextColor = color;
+        if (mTabStrip != null) {
+            mTabStrip.setDefaultTextColor(color);
+            mTabStrip.invalidate();
         }
     }
 
     /**
-     * 为了兼容夜间模式而特地添加的
-     * @param background
+     * Installs a {@link TabMetrics} that collects counters and timings of
+     * this layout, or removes it when {@code metrics} is {@code null}.
+     * Metrics are disabled by default and cost only a null check then.
      */
-    public void setSlidingTabBackground(Drawable background) {
-        if (mTabStrip != null)
-            mTabStrip.setBackgroundDrawable(background);
-        super.setBackgroundDrawable(background);
+    public void setMetrics(TabMetrics metrics) {
+        mMetrics = metrics;
+        mTabStrip.setMetrics(metrics);
     }
 
-    @Override
-    protected void onAttachedToWindow() {
-        super.onAttachedToWindow();
+    public TabMetrics getMetrics() {
+        return mMetrics;
+    }
 
-        if (mViewPager != null) {
-            scrollToTab(mViewPager.getCurrentItem(), 0);
-        }
+    /**
+     * Set the custom layout to be inflated for the tab views.
+     *
+     * @param layoutResId Layout id to be inflated
+     * @param textViewId id of the {@link TextView} in the inflated view
+     */
+    public void setCustomTabView(int layoutResId, int textViewId) {
+        mTabViewLayoutId = layoutResId;
+        mTabViewTextViewId = textViewId;
+        mTabStrip.setTabTitleViewId(layoutResId != 0 ? textViewId : 0);
     }
 
-    private void scrollToTab(int tabIndex, int positionOffset) {
-        final int tabStripChildCount = mTabStrip.getChildCount();
-        if (tabStripChildCount == 0 || tabIndex < 0 || tabIndex >= tabStripChildCount) {
-            return;
-        }
+    /**
+     * When enabled the indicator is as wide as the title text of each tab
+     * instead of the fixed width set with {@link #setIndicatorWidth(int)}.
+     * Title widths are measured once per text and text style and cached,
+     * they are read during layout and never measured in {@code onDraw}.
+     */
+    public void setIndicatorMatchTextWidth(boolean matchTextWidth) {
+        mTabStrip.setIndicatorMatchTextWidth(matchTextWidth);
+    }
 
-        View selectedChild = mTabStrip.getChildAt(tabIndex);
-        if (selectedChild != null) {
-            // 距离当前TAB选项标题的左边距和当前标题偏移量之和
-            int targetScrollX = selectedChild.getLeft() + positionOffset;
+    /**
+     * Sets the fixed width of the indicator in pixels, 16dp by default or
+     * the {@code indicator_width} attribute. It only applies to this layout.
+     */
+    public void setIndicatorWidth(int widthPx) {
+        mTabStrip.setIndicatorWidth(widthPx);
+    }
 
-            if (tabIndex > 0 || positionOffset > 0) {
-                // If we're not at the first child and are mid-scroll, make sure
-                // we obey the offset
-                targetScrollX -= mTitleOffset;
-            }
+    /**
+     * Sets the pool custom tab views are taken from and returned to, so that
+     * several layouts of the same screen can share views of the same tab
+     * layout. Pass {@code null} to go back to a private pool. Default tab
+     * views always use a private pool.
+     */
+    public void setTabViewPool(TabViewPool pool) {
+        mTabViewPool = pool != null ? pool : mDefaultTabViewPool;
+    }
+
+    public TabViewPool getTabViewPool() {
+        return mTabViewPool;
+    }
 
-            scrollTo(targetScrollX, 0);
+    /**
+     * Inflates {@code count} views of the custom tab layout on a background
+     * thread into the {@link TabViewPool}, so that a later
+     * {@link #setViewPager(ViewPager)} only binds titles. Call it after
+     * {@link #setCustomTabView(int, int)}; does nothing for default tabs.
+     */
+    public void prefetchTabViews(int count) {
+        if (mTabViewLayoutId != 0) {
+            mTabViewPool.prefetch(getContext(), mTabViewLayoutId, mTabViewTextViewId, count);
         }
     }
 
-    private class InternalViewPagerListener implements ViewPager.OnPageChangeListener {
-        // private int mScrollState;
+    /**
+     * Enables or disables virtualized tabs. When enabled only the tabs inside
+     * the visible window, plus a small margin, exist as real views. Tabs that
+     * scroll out are recycled. Takes effect on the next
+     * {@link #setViewPager(ViewPager)} call.
+     */
+    public void setVirtualizedTabs(boolean virtualized) {
+        mVirtualizedTabs = virtualized;
+    }
 
-        /**
-         * @param position
-         *            索引值
-         * @param positionOffset
-         *            偏移率(0-0.999) 约为(0-1)
-         * @param positionOffsetPixels
-         *            像素偏移量(0-1078) 约为(0-1080)
-         */
-        @Override
-        public void onPageScrolled(int position, float positionOffset, int positionOffsetPixels) {
-            int tabStripChildCount = mTabStrip.getChildCount();
-            if ((tabStripChildCount == 0) || (position < 0) || (position >= tabStripChildCount)) {
-                return;
+    /**
+     * Enables or disables lazy titles. When enabled
+     * {@link PagerAdapter#getPageTitle(int)} is only called for the current
+     * page and for tabs that scroll into the visible window. The other tabs
+     * are laid out with a width estimated from the current title and get
+     * their real width once their title is resolved. Resolved titles are
+     * cached until the adapter reports a change. Implies
+     * {@link #setVirtualizedTabs(boolean)}. Takes effect on the next
+     * {@link #setViewPager(ViewPager)} call.
+     */
+    public void setLazyTitles(boolean lazyTitles) {
+        mLazyTitles = lazyTitles;
+    }
+
+    /**
+     * Enables or disables the flattened renderer for plain text tabs. When
+     * enabled no tab views are created: the strip lays out every title once
+     * into a cached text layout and draws titles, indicator and dividers on
+     * its own canvas, and resolves clicks from the tab bounds. Scrolling,
+     * colors and {@link TabColorizer} behave as with tab views. Custom tab
+     * views are ignored in this mode. Takes effect on the next
+     * {@link #setViewPager(ViewPager)} call.
+     */
+    public void setFlattenedTabs(boolean flattened) {
+        mFlattenedTabs = flattened;
+    }
+
+    /**
+     * Enables or disables deferred tabs. When enabled and this layout is not
+     * shown when {@link #setViewPager(ViewPager)} or
+     * {@link #bind(ViewPager, BindState)} is called, no tab is created until
+     * the layout is first measured or attached to a visible window. Only
+     * the selection of the current page is set right away, and the layout
+     * scrolls to the current tab after the tabs were laid out. Useful for
+     * tab layouts in hidden fragments, collapsed panels or off-screen pages.
+     * Takes effect on the next {@link #setViewPager(ViewPager)} call.
+     */
+    public void setDeferredTabs(boolean deferred) {
+        mDeferredTabs = deferred;
+    }
+
+    /**
+     * Sets the id of a {@link TextView} in the custom tab layout that shows
+     * the count set with {@link #setTabBadge(int, int)}. It is hidden while
+     * the count is 0. Takes effect on the next
+     * {@link #setViewPager(ViewPager)} call.
+     *
+     * @see #setCustomTabView(int, int)
+     */
+    public void setTabBadgeViewId(int badgeViewId) {
+        mTabBadgeViewId = badgeViewId;
+    }
+
+    /**
+     * Replaces the title of the tab at {@code position} until the adapter
+     * reports a change or another pager is set. May be called from any
+     * thread; updates are applied on the UI thread once per frame and only
+     * the last title set for a tab in that frame is used. The tab strip is
+     * laid out again only if the width of the title changes.
+     */
+    public void setTabTitle(int position, CharSequence title) {
+        synchronized (mTabUpdatesLock) {
+            mPendingTabUpdates.titles.put(position, title != null ? title : "");
+        }
+        scheduleTabUpdates();
+    }
+
+    /**
+     * Sets the count shown in the badge view of the tab at {@code position},
+     * 0 hides the badge, until the adapter reports a change or another pager
+     * is set. Needs a badge view set with {@link #setTabBadgeViewId(int)}.
+     * May be called from any thread, see
+     * {@link #setTabTitle(int, CharSequence)}.
+     */
+    public void setTabBadge(int position, int count) {
+        synchronized (mTabUpdatesLock) {
+            mPendingTabUpdates.badges.put(position, Math.max(0, count));
+        }
+        scheduleTabUpdates();
+    }
+
+    /**
+     * Enables or disables the tab at {@code position} until the adapter
+     * reports a change or another pager is set. Disabled tabs ignore clicks.
+     * May be called from any thread, see
+     * {@link #setTabTitle(int, CharSequence)}.
+     */
+    public void setTabEnabled(int position, boolean enabled) {
+        synchronized (mTabUpdatesLock) {
+            mPendingTabUpdates.enabled.put(position, enabled);
+        }
+        scheduleTabUpdates();
+    }
+
+    private void scheduleTabUpdates() {
+        if (!mTabUpdatesScheduled.compareAndSet(false, true)) {
+            return;
+        }
+        if (Looper.myLooper() == Looper.getMainLooper()) {
+            mScheduleTabUpdatesRunnable.run();
+        } else {
+            mMainHandler.post(mScheduleTabUpdatesRunnable);
+        }
+    }
+
+    private void clearTabState() {
+        synchronized (mTabUpdatesLock) {
+            mPendingTabUpdates.clear();
+        }
+        mTitleOverrides.clear();
+        mTabBadges.clear();
+        mDisabledTabs.clear();
+    }
+
+    /**
+     * 应用这一帧之前提交的所有tab更新，应用期间新提交的更新安排到下一帧
+     */
+    private void applyPendingTabUpdates() {
+        mTabUpdatesScheduled.set(false);
+        if (mViewPager == null) {
+            // 没有ViewPager时保留更新，设置新的ViewPager会清除它们
+            return;
+        }
+        final TabUpdates updates;
+        synchronized (mTabUpdatesLock) {
+            updates = mPendingTabUpdates;
+            mPendingTabUpdates = mApplyingTabUpdates;
+            mApplyingTabUpdates = updates;
+        }
+        final int count = mViewPager.getAdapter().getCount();
+        boolean flatTitlesChanged = false;
+        for (int i = 0; i < updates.titles.size(); i++) {
+            final int position = updates.titles.keyAt(i);
+            if (position < count) {
+                flatTitlesChanged |= applyTabTitle(position, updates.titles.valueAt(i), count);
+            }
+        }
+        for (int i = 0; i < updates.badges.size(); i++) {
+            final int position = updates.badges.keyAt(i);
+            if (position < count) {
+                applyTabBadge(position, updates.badges.valueAt(i), count);
+            }
+        }
+        for (int i = 0; i < updates.enabled.size(); i++) {
+            final int position = updates.enabled.keyAt(i);
+            if (position < count) {
+                applyTabEnabled(position, updates.enabled.valueAt(i));
+            }
+        }
+        updates.clear();
+        if (flatTitlesChanged) {
+            // 扁平化模式的标题由strip统一排版，同一帧的所有标题修改只重新排版一次
+            recycleVirtualTabs();
+            populateFlatTabStrip(mViewPager.getAdapter());
+        }
+    }
+
+    /**
+     * @return true if the titles of the flattened renderer need to be laid
+     *         out again
+     */
+    private boolean applyTabTitle(int position, CharSequence title, int count) {
+        mTitleOverrides.put(position, title);
+        if (mLazyTitles) {
+            mResolvedTitles.put(position, title);
+        }
+        if (position < mTabTitles.size()) {
+            mTabTitles.set(position, title);
+        }
+        if (mPopulatePending || mTitlesPending) {
+            // tab还没有创建，创建时会读取新的标题
+            return false;
+        }
+        if (mTabStrip.isFlattened()) {
+            return true;
+        }
+        final View tabView = position < mTabStrip.getTabCount() ? mTabStrip.getTabView(position) : null;
+        if (tabView != null) {
+            TextView tabTitleView = findTabTitleView(tabView);
+            if (tabTitleView != null) {
+                mTabStrip.setTabText(tabView, tabTitleView, title);
+            }
+        }
+        if (mTabStrip.isVirtualized()) {
+            updateVirtualTabWidth(position, count, tabView);
+        }
+        return false;
+    }
+
+    private void applyTabBadge(int position, int badge, int count) {
+        if (badge > 0) {
+            mTabBadges.put(position, badge);
+        } else {
+            mTabBadges.delete(position);
+        }
+        if (mTabBadgeViewId == 0 || mTabStrip.isFlattened() || position >= mTabStrip.getTabCount()) {
+            return;
+        }
+        final View tabView = mTabStrip.getTabView(position);
+        if (tabView != null && bindTabBadge(tabView, badge) && mTabStrip.isVirtualized()) {
+            updateVirtualTabWidth(position, count, tabView);
+        }
+    }
+
+    private void applyTabEnabled(int position, boolean enabled) {
+        if (enabled) {
+            mDisabledTabs.delete(position);
+        } else {
+            mDisabledTabs.put(position, true);
+        }
+        final View tabView = !mTabStrip.isFlattened() && position < mTabStrip.getTabCount()
+                ? mTabStrip.getTabView(position) : null;
+        if (tabView != null) {
+            tabView.setEnabled(enabled);
+        }
+    }
+
+    /**
+     * 重新测量虚拟化tab的宽度，strip只在宽度变化时重新布局。不在窗口内的tab用临时View测量
+     */
+    private void updateVirtualTabWidth(int position, int count, View tabView) {
+        final View measuredView = tabView != null ? tabView : obtainTabView();
+        if (tabView == null) {
+            bindTabView(measuredView, position, count, getTabTitle(mViewPager.getAdapter(), position));
+        }
+        mTabStrip.setVirtualTabWidth(position, measureVirtualTabWidth(measuredView),
+                mTabStrip.isIndicatorMatchTextWidth() ? mTabStrip.measureTitleWidth(measuredView) : 0);
+        if (tabView == null) {
+            recycleTabView(measuredView);
+        }
+    }
+
+    /**
+     * Sets the typeface of the default tab views. Takes effect on the next
+     * {@link #setViewPager(ViewPager)} call.
+     */
+    public void setTitleTypeface(Typeface typeface) {
+        mTitleTypeface = typeface;
+    }
+
+    /**
+     * Sets the executor used to measure the titles of default tab views in
+     * the background. While it runs the strip shows placeholder bars; the
+     * finished tabs are then added in a single batch on the main thread and
+     * reuse the measured title widths instead of measuring them again. An
+     * executor that runs tasks directly makes population synchronous again,
+     * which is useful in tests. Pass {@code null} to lay out titles on the
+     * main thread. Has no effect with a custom tab view, an overridden
+     * {@link #createDefaultTabView(Context)} or lazy titles.
+     */
+    public void setTitlePrecomputeExecutor(Executor executor) {
+        mTitleExecutor = executor;
+    }
+
+    private boolean isVirtualizedTabs() {
+        return mVirtualizedTabs || mLazyTitles;
+    }
+
+    /**
+     * Create a default view to be used for tabs. This is called if a custom tab
+     * view is not set via {@link #setCustomTabView(int, int)}.
+     */
+    protected TextView createDefaultTabView(Context context) {
+        TextView textView = new TextView(context);
+        textView.setGravity(Gravity.CENTER);
+        textView.setTextSize(TypedValue.COMPLEX_UNIT_PX, mTitleTextSize);
+        textView.setSingleLine(true);
+        textView.setTextColor(mDefaultTextColor);
+        if (mTitleTypeface != null) {
+            textView.setTypeface(mTitleTypeface);
+        }
+
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.HONEYCOMB) {
+            // If we're running on Honeycomb or newer, then we can use the
+            // Theme's
+            // selectableItemBackground to ensure that the View has a pressed
+            // state
+            TypedValue outValue = new TypedValue();
+            getContext().getTheme().resolveAttribute(android.R.attr.selectableItemBackground, outValue, true);
+            textView.setBackgroundResource(outValue.resourceId);
+        }
+
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.ICE_CREAM_SANDWICH) {
+            // If we're running on ICS or newer, enable all-caps to match the
+            // Action Bar tab style
+            // textView.setAllCaps(true);
+        }
+
+        int height = (int) (mTabLayoutHeight);
+        int horizontalPadding = (int) mHorizontalPadding;
+        textView.setBackgroundResource(android.R.color.transparent);
+        textView.setPadding(horizontalPadding, 0, horizontalPadding, 0);
+        if (mTitleTabHorizontalMatch) {
+            textView.setLayoutParams(new LinearLayout.LayoutParams(LinearLayout.LayoutParams.WRAP_CONTENT, height, 1.0f));
+        } else {
+            textView.setLayoutParams(new LinearLayout.LayoutParams(LinearLayout.LayoutParams.WRAP_CONTENT, height));
+        }
+
+        return textView;
+    }
+
+    private void populateTabStrip() {
+        final TabMetrics metrics = mMetrics;
+        final long populateStart = metrics != null ? System.nanoTime() : 0;
+        populateTabStripInternal();
+        if (metrics != null) {
+            metrics.recordPopulate(System.nanoTime() - populateStart);
+        }
+    }
+
+    private void populateTabStripInternal() {
+        final PagerAdapter adapter = mViewPager.getAdapter();
+        final int count = adapter.getCount();
+
+        if (mFlattenedTabs) {
+            populateFlatTabStrip(adapter);
+            return;
+        }
+
+        if (mLazyTitles) {
+            populateVirtualTabStrip(adapter);
+            return;
+        }
+
+        if (mTitleExecutor != null && mTabViewLayoutId == 0 && !mDefaultTabViewOverridden) {
+            populateTabStripAsync(adapter);
+            return;
+        }
+
+        mTabTitles.clear();
+        for (int i = 0; i < count; i++) {
+            mTabTitles.add(getTabTitle(adapter, i));
+        }
+
+        if (mVirtualizedTabs) {
+            populateVirtualTabStrip(adapter);
+            return;
+        }
+
+        for (int i = 0; i < count; i++) {
+            View tabView = obtainTabView();
+            bindTabView(tabView, i, count, mTabTitles.get(i));
+            mTabStrip.addView(tabView);
+        }
+    }
+
+    /**
+     * Brings the tab strip in line with the adapter after
+     * {@link PagerAdapter#notifyDataSetChanged()}. The old and new title lists
+     * are diffed so that only inserted, removed, moved or retitled tabs
+     * touch their views; unchanged tabs keep their views and measurements.
+     */
+    private void updateTabStrip() {
+        final PagerAdapter adapter = mViewPager.getAdapter();
+        if (mTabStrip.isFlattened()) {
+            // 扁平化模式没有需要复用的View，重新排版全部标题
+            recycleVirtualTabs();
+            populateFlatTabStrip(adapter);
+            return;
+        }
+        if (mLazyTitles) {
+            // 延迟标题模式下不能为了比较而获取全部标题，直接丢弃缓存重新估算
+            recycleVirtualTabs();
+            mResolvedTitles.clear();
+            populateVirtualTabStrip(adapter);
+            return;
+        }
+        if (mTitlesPending) {
+            // tab还没有添加，重新排版新的标题即可
+            populateTabStripAsync(adapter);
+            return;
+        }
+        final int count = adapter.getCount();
+        final List<CharSequence> newTitles = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            newTitles.add(adapter.getPageTitle(i));
+        }
+        if (newTitles.equals(mTabTitles)) {
+            return;
+        }
+
+        if (mTabStrip.isVirtualized()) {
+            // 虚拟化模式下只需要重新计算宽度，窗口内的tab在下次布局时重新绑定
+            recycleVirtualTabs();
+            mTabTitles.clear();
+            mTabTitles.addAll(newTitles);
+            populateVirtualTabStrip(adapter);
+            return;
+        }
+
+        final int oldCount = mTabTitles.size();
+        final View[] oldViews = new View[oldCount];
+        for (int i = 0; i < oldCount; i++) {
+            oldViews[i] = mTabStrip.getChildAt(i);
+        }
+
+        // 1. 标题相同的tab直接复用原来的View（包括被移动的tab）。插入、删除或移动时匹配的旧tab
+        // 通常紧跟在上一个匹配之后，所以从上一个匹配的位置开始查找，绕回开头找完所有未使用的旧tab
+        final View[] newViews = new View[count];
+        final boolean[] oldUsed = new boolean[oldCount];
+        final int[] oldPositions = new int[count];
+        int searchStart = 0;
+        for (int j = 0; j < count; j++) {
+            final CharSequence title = newTitles.get(j);
+            oldPositions[j] = -1;
+            for (int k = 0; k < oldCount; k++) {
+                final int i = (searchStart + k) % oldCount;
+                if (!oldUsed[i] && TextUtils.equals(mTabTitles.get(i), title)) {
+                    oldUsed[i] = true;
+                    oldPositions[j] = i;
+                    newViews[j] = oldViews[i];
+                    searchStart = i + 1;
+                    // 文字相同但样式不同的标题仍然需要重新设置
+                    if (!isSameTitle(mTabTitles.get(i), title)) {
+                        TextView tabTitleView = findTabTitleView(newViews[j]);
+                        if (tabTitleView != null) {
+                            mTabStrip.setTabText(newViews[j], tabTitleView, title);
+                        }
+                    }
+                    break;
+                }
+            }
+        }
+
+        // 2. 其余位置优先复用未匹配的旧View只修改标题，没有可复用的View时才新建
+        int nextUnused = 0;
+        for (int j = 0; j < count; j++) {
+            if (newViews[j] != null) {
+                continue;
+            }
+            while (nextUnused < oldCount && oldUsed[nextUnused]) {
+                nextUnused++;
+            }
+            if (nextUnused < oldCount) {
+                oldUsed[nextUnused] = true;
+                oldPositions[j] = nextUnused;
+                newViews[j] = oldViews[nextUnused];
+                TextView tabTitleView = findTabTitleView(newViews[j]);
+                if (tabTitleView != null && !TextUtils.equals(tabTitleView.getText(), newTitles.get(j))) {
+                    tabTitleView.setText(newTitles.get(j));
+                }
+            } else {
+                newViews[j] = obtainTabView();
+                bindTabView(newViews[j], j, count, newTitles.get(j));
+            }
+        }
+
+        // 3. 移除多余的旧View
+        for (int i = 0; i < oldCount; i++) {
+            if (!oldUsed[i]) {
+                mTabStrip.removeView(oldViews[i]);
+                recycleTabView(oldViews[i]);
+            }
+        }
+
+        // 4. 只移动顺序发生变化的View
+        for (int j = 0; j < count; j++) {
+            View tabView = newViews[j];
+            if (mTabStrip.getChildAt(j) != tabView) {
+                if (tabView.getParent() == mTabStrip) {
+                    mTabStrip.removeView(tabView);
+                }
+                mTabStrip.addView(tabView, j);
+            }
+            // 第一个和最后一个tab带有额外的padding，位置变化时需要重新设置
+            int oldPosition = oldPositions[j];
+            if (oldPosition >= 0 && ((oldPosition == 0) != (j == 0)
+                    || (oldPosition == oldCount - 1) != (j == count - 1))) {
+                bindTabPadding(tabView, j, count, true);
+            }
+        }
+
+        if (hasTabState()) {
+            for (int j = 0; j < count; j++) {
+                bindTabState(newViews[j], j);
+            }
+        }
+
+        mTabTitles.clear();
+        mTabTitles.addAll(newTitles);
+        mTabStrip.invalidate();
+    }
+
+    /**
+     * @return 两个标题显示的内容是否完全相同；带样式的标题无法廉价地比较样式，除非是同一个对象，否则都视为不同
+     */
+    private static boolean isSameTitle(CharSequence a, CharSequence b) {
+        return a == b || (!(a instanceof Spanned) && !(b instanceof Spanned) && TextUtils.equals(a, b));
+    }
+
+    /**
+     * 虚拟化模式下只测量每个tab的宽度，真正的View在滚动到可见窗口时才创建
+     */
+    private void populateVirtualTabStrip(PagerAdapter adapter) {
+        final int count = adapter.getCount();
+        final int[] widths = new int[count];
+        final int[] titleWidths = mTabStrip.isIndicatorMatchTextWidth() ? new int[count] : null;
+        int tabHeight = 0;
+
+        View scrapView = obtainTabView();
+        if (mLazyTitles) {
+            // 只获取并测量当前页的标题，其余tab按它的文字宽度估算占位，滚动到可见窗口时再获取真正的标题
+            final int current = Math.min(mViewPager.getCurrentItem(), count - 1);
+            int estimatedContentWidth = 0;
+            if (current >= 0) {
+                bindTabView(scrapView, current, count, getTabTitle(adapter, current));
+                widths[current] = measureVirtualTabWidth(scrapView);
+                tabHeight = getVirtualTabHeight(scrapView);
+                if (titleWidths != null) {
+                    titleWidths[current] = mTabStrip.measureTitleWidth(scrapView);
+                }
+                estimatedContentWidth = widths[current] - getTabHorizontalPadding(current, count);
+            }
+            for (int i = 0; i < count; i++) {
+                if (i != current) {
+                    widths[i] = estimatedContentWidth + getTabHorizontalPadding(i, count);
+                }
+            }
+        } else {
+            for (int i = 0; i < count; i++) {
+                bindTabView(scrapView, i, count, getTabTitle(adapter, i));
+                widths[i] = measureVirtualTabWidth(scrapView);
+                tabHeight = Math.max(tabHeight, getVirtualTabHeight(scrapView));
+                if (titleWidths != null) {
+                    titleWidths[i] = mTabStrip.measureTitleWidth(scrapView);
+                }
+            }
+        }
+        recycleTabView(scrapView);
+
+        mTabStrip.setVirtualTabs(widths, titleWidths, tabHeight);
+    }
+
+    /**
+     * 扁平化模式下为每个标题生成一次Layout，由strip直接绘制
+     */
+    private void populateFlatTabStrip(PagerAdapter adapter) {
+        final int count = adapter.getCount();
+        final TextPaint paint = new TextPaint(Paint.ANTI_ALIAS_FLAG);
+        paint.setTextSize(mTitleTextSize);
+        paint.setTypeface(mTitleTypeface);
+
+        final Layout[] titles = new Layout[count];
+        final int[] widths = new int[count];
+        final int[] titleLefts = new int[count];
+        final int[] titleWidths = new int[count];
+        mTabTitles.clear();
+        for (int i = 0; i < count; i++) {
+            CharSequence title = getTabTitle(adapter, i);
+            mTabTitles.add(title);
+            if (title == null) {
+                title = "";
+            }
+            BoringLayout.Metrics boring = BoringLayout.isBoring(title, paint);
+            if (boring != null) {
+                titleWidths[i] = boring.width;
+                titles[i] = BoringLayout.make(title, paint, Math.max(1, boring.width),
+                        Layout.Alignment.ALIGN_NORMAL, 1.0f, 0f, boring, true);
+            } else {
+                titleWidths[i] = (int) Math.ceil(Layout.getDesiredWidth(title, paint));
+                titles[i] = new StaticLayout(title, paint, Math.max(1, titleWidths[i]),
+                        Layout.Alignment.ALIGN_NORMAL, 1.0f, 0f, true);
+            }
+            titleLefts[i] = getTabLeftPadding(i, count);
+            widths[i] = titleWidths[i] + getTabHorizontalPadding(i, count);
+        }
+        mTabStrip.setFlatTabs(titles, widths, titleLefts, titleWidths, (int) mTabLayoutHeight, paint);
+    }
+
+    /**
+     * 标题在mTitleExecutor上测量，主线程只获取标题并显示骨架，结果在attachPrecomputedTabs中一次性添加
+     */
+    private void populateTabStripAsync(PagerAdapter adapter) {
+        final int count = adapter.getCount();
+        final CharSequence[] titles = new CharSequence[count];
+        mTabTitles.clear();
+        for (int i = 0; i < count; i++) {
+            titles[i] = getTabTitle(adapter, i);
+            mTabTitles.add(titles[i]);
+        }
+
+        final TextPaint paint = new TextPaint(Paint.ANTI_ALIAS_FLAG);
+        paint.setTextSize(mTitleTextSize);
+        paint.setTypeface(mTitleTypeface);
+
+        mTitlesPending = true;
+        mTabStrip.setSkeletonTabs(count, (int) mTabLayoutHeight);
+        mTitleExecutor.execute(new TabTitlePrecomputer(++mTitleGeneration, titles, paint, mTitlePrecomputeCallback));
+    }
+
+    private void attachPrecomputedTabs(TabTitlePrecomputer result) {
+        if (result.generation != mTitleGeneration || !mTitlesPending || mViewPager == null) {
+            // 期间已经重新设置了ViewPager或者标题
+            return;
+        }
+        mTitlesPending = false;
+        mTabStrip.setSkeletonTabs(0, 0);
+
+        final CharSequence[] titles = result.titles;
+        final int count = titles.length;
+        if (mVirtualizedTabs) {
+            final int[] widths = new int[count];
+            for (int i = 0; i < count; i++) {
+                widths[i] = result.titleWidths[i] + getTabHorizontalPadding(i, count);
+            }
+            mTabStrip.setVirtualTabs(widths, mTabStrip.isIndicatorMatchTextWidth() ? result.titleWidths : null,
+                    (int) mTabLayoutHeight);
+            return;
+        }
+        for (int i = 0; i < count; i++) {
+            View tabView = obtainTabView();
+            // 排版期间可能通过setTabTitle修改了标题
+            final CharSequence override = mTitleOverrides.get(i);
+            bindTabView(tabView, i, count, override != null ? override : titles[i]);
+            if (override == null) {
+                // 测量tab时直接使用后台算好的文字宽度
+                mTabStrip.putTitleWidth(tabView, result.getPaint(), result.titleWidths[i]);
+            }
+            mTabStrip.addView(tabView);
+        }
+        scrollToTab(mViewPager.getCurrentItem(), 0);
+    }
+
+    /**
+     * @return the natural width of a bound tab view. Custom tab views are
+     *         measured once with an unspecified width.
+     */
+    private int measureVirtualTabWidth(View tabView) {
+        if (TabViewHolder.isPlainText(tabView)) {
+            // 默认tab直接用画笔测量文字宽度，省去TextView的measure过程
+            TextView textView = (TextView) tabView;
+            return tabView.getPaddingLeft() + tabView.getPaddingRight()
+                    + (int) Math.ceil(Layout.getDesiredWidth(textView.getText(), textView.getPaint()));
+        }
+        ViewGroup.LayoutParams lp = tabView.getLayoutParams();
+        int heightSpec = lp != null && lp.height >= 0
+                ? MeasureSpec.makeMeasureSpec(lp.height, MeasureSpec.EXACTLY)
+                : MeasureSpec.makeMeasureSpec(0, MeasureSpec.UNSPECIFIED);
+        tabView.measure(MeasureSpec.makeMeasureSpec(0, MeasureSpec.UNSPECIFIED), heightSpec);
+        return tabView.getMeasuredWidth();
+    }
+
+    /**
+     * @return the height of a tab view measured by
+     *         {@link #measureVirtualTabWidth(View)}
+     */
+    private int getVirtualTabHeight(View tabView) {
+        if (TabViewHolder.isPlainText(tabView)) {
+            return (int) mTabLayoutHeight;
+        }
+        return tabView.getMeasuredHeight();
+    }
+
+    /**
+     * @return 与bindTabPadding一致的tab左右padding之和
+     */
+    private int getTabHorizontalPadding(int position, int count) {
+        int horizontalPadding = (int) mHorizontalPadding;
+        if (position == count - 1 && mRightPadding > 0) {
+            return horizontalPadding * 2 + (int) mRightPadding;
+        }
+        if (position == 0 && mLeftPadding > 0) {
+            return horizontalPadding * 2 + (int) mLeftPadding;
+        }
+        return horizontalPadding * 2;
+    }
+
+    /**
+     * @return 与bindTabPadding一致的tab左侧padding
+     */
+    private int getTabLeftPadding(int position, int count) {
+        int horizontalPadding = (int) mHorizontalPadding;
+        if (position == count - 1 && mRightPadding > 0) {
+            return horizontalPadding;
+        }
+        if (position == 0 && mLeftPadding > 0) {
+            return horizontalPadding + (int) mLeftPadding;
+        }
+        return horizontalPadding;
+    }
+
+    /**
+     * @return the title of the page at {@code position}, or the title set
+     *         with {@link #setTabTitle(int, CharSequence)}. With lazy titles
+     *         the adapter is asked only once per page until the adapter
+     *         changes.
+     */
+    private CharSequence getTabTitle(PagerAdapter adapter, int position) {
+        int index = mTitleOverrides.indexOfKey(position);
+        if (index >= 0) {
+            return mTitleOverrides.valueAt(index);
+        }
+        if (!mLazyTitles) {
+            return adapter.getPageTitle(position);
+        }
+        index = mResolvedTitles.indexOfKey(position);
+        if (index >= 0) {
+            return mResolvedTitles.valueAt(index);
+        }
+        CharSequence title = adapter.getPageTitle(position);
+        mResolvedTitles.put(position, title);
+        return title;
+    }
+
+    /**
+     * @return whether {@code layoutClass} overrides {@link #createDefaultTabView(Context)}
+     */
+    private static boolean overridesDefaultTabView(Class<?> layoutClass) {
+        for (Class<?> c = layoutClass; c != SlidingTabLayout.class; c = c.getSuperclass()) {
+            try {
+                c.getDeclaredMethod("createDefaultTabView", Context.class);
+                return true;
+            } catch (NoSuchMethodException e) {
+                // 继续检查父类
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Creates a new tab view, either by inflating the custom tab layout or by
+     * calling {@link #createDefaultTabView(Context)}.
+     */
+    private View createTabView() {
+        if (mMetrics != null) {
+            mMetrics.recordTabViewInflated();
+        }
+        View tabView = null;
+        if (mTabViewLayoutId != 0) {
+            // If there is a custom tab view layout id set, try and inflate
+            // it
+            tabView = LayoutInflater.from(getContext()).inflate(mTabViewLayoutId, mTabStrip, false);
+        }
+
+        if (tabView == null) {
+            tabView = createDefaultTabView(getContext());
+            TabViewHolder.attachDefault(tabView, !mDefaultTabViewOverridden);
+        } else {
+            TabViewHolder.attach(tabView, mTabViewLayoutId, mTabViewTextViewId);
+        }
+        return tabView;
+    }
+
+    private TextView findTabTitleView(View tabView) {
+        TabViewHolder holder = TabViewHolder.get(tabView);
+        if (holder != null) {
+            return holder.titleView;
+        }
+        TextView tabTitleView = null;
+        if (mTabViewLayoutId != 0) {
+            tabTitleView = (TextView) tabView.findViewById(mTabViewTextViewId);
+        }
+
+        if (tabTitleView == null && TextView.class.isInstance(tabView)) {
+            tabTitleView = (TextView) tabView;
+        }
+        return tabTitleView;
+    }
+
+    private void bindTabView(View tabView, int position, int count, CharSequence title) {
+        TextView tabTitleView = findTabTitleView(tabView);
+        if (tabTitleView != null) {
+            tabTitleView.setText(title);
+        }
+        tabView.setOnClickListener(mTabClickListener);
+        bindTabPadding(tabView, position, count, isVirtualizedTabs());
+        bindTabState(tabView, position);
+    }
+
+    /**
+     * 清除已经应用的角标和不可用状态，并恢复现有的tab View
+     */
+    private void clearAppliedTabState() {
+        if (mTabBadges.size() == 0 && mDisabledTabs.size() == 0) {
+            return;
+        }
+        mTabBadges.clear();
+        mDisabledTabs.clear();
+        if (mTabStrip.isFlattened()) {
+            return;
+        }
+        final int count = mTabStrip.getTabCount();
+        for (int i = 0; i < count; i++) {
+            final View tabView = mTabStrip.getTabView(i);
+            if (tabView != null) {
+                bindTabState(tabView, i);
+            }
+        }
+    }
+
+    private boolean hasTabState() {
+        return mTabBadgeViewId != 0 || mDisabledTabs.size() > 0;
+    }
+
+    /**
+     * 恢复tab的可用状态和角标，复用的View可能带有其他位置的状态
+     */
+    private void bindTabState(View tabView, int position) {
+        final boolean enabled = !mDisabledTabs.get(position);
+        if (tabView.isEnabled() != enabled) {
+            tabView.setEnabled(enabled);
+        }
+        if (mTabBadgeViewId != 0) {
+            bindTabBadge(tabView, mTabBadges.get(position));
+        }
+    }
+
+    private static String getBadgeLabel(int count) {
+        if (count > MAX_BADGE_COUNT) {
+            return BADGE_OVERFLOW_LABEL;
+        }
+        String label = sBadgeLabels[count];
+        if (label == null) {
+            label = String.valueOf(count);
+            sBadgeLabels[count] = label;
+        }
+        return label;
+    }
+
+    /**
+     * @return true if the badge was shown or hidden, which may change the
+     *         width of the tab
+     */
+    private boolean bindTabBadge(View tabView, int count) {
+        final View badgeView = tabView.findViewById(mTabBadgeViewId);
+        if (badgeView == null) {
+            return false;
+        }
+        final int visibility = count > 0 ? VISIBLE : GONE;
+        if (count > 0 && badgeView instanceof TextView) {
+            mTabStrip.setTabText(tabView, (TextView) badgeView, getBadgeLabel(count));
+        }
+        if (badgeView.getVisibility() != visibility) {
+            badgeView.setVisibility(visibility);
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * @param resetPadding 复用的View可能之前是第一个或最后一个tab，需要先恢复默认padding
+     */
+    private void bindTabPadding(View tabView, int position, int count, boolean resetPadding) {
+        int horizontalPadding = (int) mHorizontalPadding; //每个tab左右padding
+
+        if (resetPadding) {
+            tabView.setPadding(horizontalPadding, 0, horizontalPadding, 0);
+        }
+
+        //by tiancuicui 2017.08.24 目前免费课程分类页面设置了左右的padding
+        //添加整个slidingTabLayout左边padding
+        if(position == 0 && mLeftPadding > 0) {
+            int leftPadding = (int) mLeftPadding; //slidingTabLayout左边padding
+            tabView.setPadding(horizontalPadding + leftPadding, 0, horizontalPadding, 0);
+        }
+
+        //添加整个slidingTabLayout右边padding
+        if(position == count - 1 && mRightPadding > 0) {
+            int rightPadding = (int) mRightPadding; //slidingTabLayout右边padding
+            tabView.setPadding(horizontalPadding, 0, horizontalPadding + rightPadding, 0);
+        }
+    }
+
+    private TabViewPool getTabViewPool(int layoutResId) {
+        return layoutResId == 0 ? mDefaultTabViewPool : mTabViewPool;
+    }
+
+    private View obtainTabView() {
+        View tabView = getTabViewPool(mTabViewLayoutId).acquire(getContext(), mTabViewLayoutId);
+        if (tabView != null) {
+            if (mMetrics != null) {
+                mMetrics.recordTabViewRecycled();
+            }
+            TabViewHolder.get(tabView).restoreInitialPadding();
+            if (tabView instanceof TextView) {
+                // 放在池中期间默认文字颜色可能已经改变
+                ((TextView) tabView).setTextColor(mDefaultTextColor);
+            }
+            return tabView;
+        }
+        return createTabView();
+    }
+
+    private void recycleTabView(View tabView) {
+        if (tabView == null) {
+            return;
+        }
+        TabViewHolder holder = TabViewHolder.get(tabView);
+        if (holder != null) {
+            getTabViewPool(holder.layoutResId).release(tabView);
+        }
+    }
+
+    /**
+     * 移除非虚拟化模式下的所有tab并放回回收池
+     */
+    private void recycleAllTabs() {
+        final int childCount = mTabStrip.getChildCount();
+        if (childCount == 0) {
+            return;
+        }
+        final View[] tabViews = new View[childCount];
+        for (int i = 0; i < childCount; i++) {
+            tabViews[i] = mTabStrip.getChildAt(i);
+        }
+        mTabStrip.removeAllViews();
+        for (View tabView : tabViews) {
+            recycleTabView(tabView);
+        }
+    }
+
+    /**
+     * 把当前可见窗口内的tab全部放回回收池，并退出虚拟化状态
+     */
+    private void recycleVirtualTabs() {
+        if (!mTabStrip.isVirtualized()) {
+            return;
+        }
+        for (int i = mVirtualFirstTab; i <= mVirtualLastTab; i++) {
+            recycleTabView(mTabStrip.detachVirtualTab(i));
+        }
+        mVirtualFirstTab = 0;
+        mVirtualLastTab = -1;
+        mTabStrip.clearVirtualTabs();
+    }
+
+    /**
+     * 根据当前滚动位置计算需要真实View的tab窗口，移出窗口的tab被回收，进入窗口的tab被绑定
+     */
+    private void updateVirtualWindow() {
+        if (!mTabStrip.isVirtualized() || mTabStrip.isFlattened() || mViewPager == null || getWidth() == 0) {
+            return;
+        }
+        final int count = mTabStrip.getTabCount();
+        if (count == 0) {
+            return;
+        }
+        final int scrollX = getScrollX();
+        final int first = Math.max(0, mTabStrip.findTabAt(scrollX) - VIRTUAL_WINDOW_MARGIN_TABS);
+        final int last = Math.min(count - 1, mTabStrip.findTabAt(scrollX + getWidth()) + VIRTUAL_WINDOW_MARGIN_TABS);
+        if (first == mVirtualFirstTab && last == mVirtualLastTab) {
+            return;
+        }
+
+        for (int i = mVirtualFirstTab; i <= mVirtualLastTab; i++) {
+            if (i < first || i > last) {
+                recycleTabView(mTabStrip.detachVirtualTab(i));
             }
+        }
+
+        final PagerAdapter adapter = mViewPager.getAdapter();
+        for (int i = first; i <= last; i++) {
+            if (mTabStrip.getTabView(i) == null) {
+                final boolean resolved = !mLazyTitles || mResolvedTitles.indexOfKey(i) >= 0;
+                View tabView = obtainTabView();
+                bindTabView(tabView, i, count, getTabTitle(adapter, i));
+                if (!resolved) {
+                    // 第一次获取到真正的标题，用真实宽度替换估算宽度，下一次布局生效
+                    mTabStrip.setVirtualTabWidth(i, measureVirtualTabWidth(tabView),
+                            mTabStrip.isIndicatorMatchTextWidth() ? mTabStrip.measureTitleWidth(tabView) : 0);
+                }
+                mTabStrip.attachVirtualTab(i, tabView);
+            }
+        }
+        mVirtualFirstTab = first;
+        mVirtualLastTab = last;
+        // 窗口内所有tab的增删只刷新一次
+        mTabStrip.invalidate();
+    }
+
+    /**
+     * 为了兼容夜间模式而特地添加的
+     * @param background
+     */
+    public void setSlidingTabBackground(Drawable background) {
+        if (mTabStrip != null)
+            mTabStrip.setBackgroundDrawable(background);
+        super.setBackgroundDrawable(background);
+    }
+
+    /**
+     * Applies all colors and the background of {@code palette} at once. The
+     * tab views are updated in a single pass and the strip is invalidated
+     * once, instead of once per color setter. A running
+     * {@link #animatePalette(SlidingTabPalette, long)} is cancelled.
+     */
+    public void setPalette(SlidingTabPalette palette) {
+        if (mPaletteAnimator != null) {
+            mPaletteAnimator.cancel();
+        }
+        applyPalette(palette);
+    }
+
+    private void applyPalette(SlidingTabPalette palette) {
+        applyColors(palette.defaultTextColor, palette.indicatorColors, palette.bottomIndicatorColor,
+                palette.dividerColors);
+        if (palette.background != null) {
+            applyBackground(palette.background);
+        }
+    }
+
+    /**
+     * Crossfades from the current colors to {@code palette} with the same
+     * color blending the strip uses while swiping. Color backgrounds are
+     * crossfaded as well, other backgrounds are switched at the end.
+     */
+    public void animatePalette(SlidingTabPalette palette, long durationMs) {
+        if (durationMs <= 0) {
+            setPalette(palette);
+            return;
+        }
+        if (mPaletteAnimator == null) {
+            mPaletteAnimator = ValueAnimator.ofFloat(0f, 1f);
+            mPaletteAnimator.addUpdateListener(mPaletteCrossfade);
+        } else {
+            mPaletteAnimator.cancel();
+        }
+        mPaletteCrossfade.start(getPalette(), palette);
+        mPaletteAnimator.setDuration(durationMs);
+        mPaletteAnimator.start();
+    }
+
+    /**
+     * @return a palette with the colors and background shown right now.
+     */
+    public SlidingTabPalette getPalette() {
+        return new SlidingTabPalette.Builder()
+                .setDefaultTextColor(mDefaultTextColor)
+                .setSelectedIndicatorColors(mTabStrip.getIndicatorColors())
+                .setBottomIndicatorColor(mBottomIndicatorColor)
+                .setDividerColors(mTabStrip.getDividerColors())
+                .setBackground(getBackground())
+                .build();
+    }
+
+    private void applyColors(int defaultTextColor, int[] indicatorColors, int bottomIndicatorColor,
+                             int[] dividerColors) {
+        mDefaultTextColor = defaultTextColor;
+        selectedIndicatorColor = indicatorColors[0];
+        mBottomIndicatorColor = bottomIndicatorColor;
+        mTabStrip.applyColors(defaultTextColor, indicatorColors, bottomIndicatorColor, dividerColors);
+    }
+
+    /**
+     * 与setSlidingTabBackground一样设置给自己和strip，但各自使用独立的Drawable，配色可以被多个控件共享
+     */
+    private void applyBackground(Drawable background) {
+        mTabStrip.setBackgroundDrawable(newBackground(background));
+        super.setBackgroundDrawable(newBackground(background));
+    }
+
+    private Drawable newBackground(Drawable background) {
+        Drawable.ConstantState state = background.getConstantState();
+        return state != null ? state.newDrawable(getResources()) : background;
+    }
+
+    @Override
+    protected void onMeasure(int widthMeasureSpec, int heightMeasureSpec) {
+        // 第一次测量说明控件将要显示，在测量strip之前创建延迟的tab
+        populatePendingTabs();
+        super.onMeasure(widthMeasureSpec, heightMeasureSpec);
+    }
+
+    @Override
+    protected void onLayout(boolean changed, int l, int t, int r, int b) {
+        super.onLayout(changed, l, t, r, b);
+        if (mRestoreScrollX >= 0) {
+            scrollTo(mRestoreScrollX, 0);
+            mRestoreScrollX = -1;
+            mScrollToCurrentOnLayout = false;
+        } else if (mScrollToCurrentOnLayout && mViewPager != null) {
+            mScrollToCurrentOnLayout = false;
+            scrollToTab(mViewPager.getCurrentItem(), 0);
+        }
+        updateVirtualWindow();
+    }
+
+    @Override
+    protected void onScrollChanged(int l, int t, int oldl, int oldt) {
+        super.onScrollChanged(l, t, oldl, oldt);
+        updateVirtualWindow();
+    }
+
+    @Override
+    protected void onDetachedFromWindow() {
+        super.onDetachedFromWindow();
+        if (mPaletteAnimator != null && mPaletteAnimator.isRunning()) {
+            // 不可见时直接跳到目标配色
+            mPaletteAnimator.end();
+        }
+        if (mScrollFrameScheduled) {
+            removeCallbacks(mScrollFrameRunnable);
+            mScrollFrameScheduled = false;
+        }
+    }
+
+    @Override
+    protected void onAttachedToWindow() {
+        super.onAttachedToWindow();
+        if (getWindowVisibility() == VISIBLE && isShown()) {
+            populatePendingTabs();
+        }
+
+        // bind时恢复的滚动位置优先于当前页的位置
+        if (mViewPager != null && mRestoreScrollX < 0) {
+            scrollToTab(mViewPager.getCurrentItem(), 0);
+        }
+    }
+
+    private void scrollToTab(int tabIndex, int positionOffset) {
+        final int tabStripChildCount = mTabStrip.getTabCount();
+        if (tabStripChildCount == 0 || tabIndex < 0 || tabIndex >= tabStripChildCount) {
+            return;
+        }
+
+        // 距离当前TAB选项标题的左边距和当前标题偏移量之和
+        int targetScrollX = SlidingTabGeometry.computeScrollTarget(mTabStrip.getTabLeft(tabIndex), tabIndex,
+                positionOffset, mTitleOffset);
+
+        // 目标位置没有变化，并且期间没有被用户滚动过时跳过scrollTo
+        if (targetScrollX == getScrollX()
+                || targetScrollX == mLastScrollTargetX && getScrollX() == mLastScrollX) {
+            return;
+        }
+        scrollTo(targetScrollX, 0);
+        if (mMetrics != null) {
+            mMetrics.recordScrollTo();
+        }
+        mLastScrollTargetX = targetScrollX;
+        mLastScrollX = getScrollX();
+    }
+
+    /**
+     * 记录最新的滑动位置。这一帧还没有刷新过时立即应用，否则合并到帧回调中，每帧最多再刷新一次
+     */
+    private void scheduleScrollUpdate(int position, float positionOffset) {
+        mPendingScrollPosition = position;
+        mPendingScrollOffset = positionOffset;
+        if (mScrollFrameScheduled) {
+            return;
+        }
+        // fling和回弹时ViewPager在绘制过程中的computeScroll里派发事件，等到下一个vsync再应用会让标志条落后一帧
+        applyPendingScroll();
+        mScrollFrameScheduled = true;
+        // 在API 16以上通过Choreographer执行：输入事件中提交的回调在同一帧的动画阶段执行，绘制中提交的在下一帧执行
+        ViewCompat.postOnAnimation(this, mScrollFrameRunnable);
+    }
+
+    private void applyPendingScroll() {
+        final int position = mPendingScrollPosition;
+        if (position < 0) {
+            return;
+        }
+        mPendingScrollPosition = -1;
+        int tabStripChildCount = mTabStrip.getTabCount();
+        if (position >= tabStripChildCount) {
+            return;
+        }
+
+        final TabMetrics metrics = mMetrics;
+        if (metrics != null) {
+            metrics.onScrollFrameStarted();
+        }
+
+        mTabStrip.onViewPagerPageChanged(position, mPendingScrollOffset);
+
+        // 表示当前标题长度的偏移量
+        int extraOffset = (int) (mPendingScrollOffset * mTabStrip.getTabWidth(position));
+        scrollToTab(position, extraOffset);
 
-            mTabStrip.onViewPagerPageChanged(position, positionOffset);
+        if (metrics != null) {
+            metrics.onScrollFrameFinished();
+        }
+    }
+
+    private class InternalViewPagerListener implements ViewPager.OnPageChangeListener {
+        // private int mScrollState;
 
-            View selectedTitle = mTabStrip.getChildAt(position);
-            // 表示当前标题长度的偏移量
-            int extraOffset = (selectedTitle != null) ? (int) (positionOffset * selectedTitle.getWidth()) : 0;
-            scrollToTab(position, extraOffset);
+        /**
+         * @param position
+         *            索引值
+         * @param positionOffset
+         *            偏移率(0-0.999) 约为(0-1)
+         * @param positionOffsetPixels
+         *            像素偏移量(0-1078) 约为(0-1080)
+         */
+        @Override
+        public void onPageScrolled(int position, float positionOffset, int positionOffsetPixels) {
+            int tabStripChildCount = mTabStrip.getTabCount();
+            if ((tabStripChildCount > 0) && (position >= 0) && (position < tabStripChildCount)) {
+                if (mMetrics != null) {
+                    mMetrics.recordScrollEventReceived();
+                }
+                scheduleScrollUpdate(position, positionOffset);
+            }
 
-            if (mViewPagerPageChangeListener != null) {
-                mViewPagerPageChangeListener.onPageScrolled(position, positionOffset, positionOffsetPixels);
+            final ViewPager.OnPageChangeListener[] listeners = mPageChangeListeners;
+            for (int i = 0; i < listeners.length; i++) {
+                listeners[i].onPageScrolled(position, positionOffset, positionOffsetPixels);
             }
         }
 
         @Override
         public void onPageScrollStateChanged(int state) {
             // mScrollState = state;
+            if (mMetrics != null) {
+                if (state == ViewPager.SCROLL_STATE_DRAGGING) {
+                    mMetrics.onSwipeStarted();
+                } else if (state == ViewPager.SCROLL_STATE_IDLE) {
+                    mMetrics.onSwipeFinished();
+                }
+            }
 
-            if (mViewPagerPageChangeListener != null) {
-                mViewPagerPageChangeListener.onPageScrollStateChanged(state);
+            final ViewPager.OnPageChangeListener[] listeners = mPageChangeListeners;
+            for (int i = 0; i < listeners.length; i++) {
+                listeners[i].onPageScrollStateChanged(state);
             }
         }
 
@@ -378,27 +1985,140 @@ public class SlidingTabLayout extends HorizontalScrollView {
             // scrollToTab(position, 0);
             // }
 
-            if (mViewPagerPageChangeListener != null) {
-                mViewPagerPageChangeListener.onPageSelected(position);
+            final ViewPager.OnPageChangeListener[] listeners = mPageChangeListeners;
+            for (int i = 0; i < listeners.length; i++) {
+                listeners[i].onPageSelected(position);
+            }
+        }
+
+    }
+
+    /**
+     * 逐帧混合两套配色。颜色数组在start时分配，动画过程中只修改数组内容
+     */
+    private class PaletteCrossfade implements ValueAnimator.AnimatorUpdateListener {
+        private SlidingTabPalette mFrom;
+        private SlidingTabPalette mTo;
+        private int[] mIndicatorColors;
+        private int[] mDividerColors;
+        private ColorDrawable mStripBackground;
+        private ColorDrawable mBackground;
+
+        void start(SlidingTabPalette from, SlidingTabPalette to) {
+            mFrom = from;
+            mTo = to;
+            mIndicatorColors = new int[Math.max(from.indicatorColors.length, to.indicatorColors.length)];
+            mDividerColors = from.dividerColors != null && to.dividerColors != null
+                    ? new int[Math.max(from.dividerColors.length, to.dividerColors.length)] : null;
+            final int fromBackground = from.getBackgroundColor();
+            if (fromBackground != 0 && to.getBackgroundColor() != 0) {
+                mStripBackground = new ColorDrawable(fromBackground);
+                mBackground = new ColorDrawable(fromBackground);
+                mTabStrip.setBackgroundDrawable(mStripBackground);
+                SlidingTabLayout.super.setBackgroundDrawable(mBackground);
+            } else {
+                mStripBackground = null;
+                mBackground = null;
             }
         }
 
+        @Override
+        public void onAnimationUpdate(ValueAnimator animation) {
+            final SlidingTabPalette from = mFrom;
+            final SlidingTabPalette to = mTo;
+            if (to == null) {
+                return;
+            }
+            final float fraction = animation.getAnimatedFraction();
+            if (fraction >= 1f) {
+                mFrom = null;
+                mTo = null;
+                applyPalette(to);
+                return;
+            }
+            SlidingTabPalette.blendColors(from.indicatorColors, to.indicatorColors, fraction, mIndicatorColors);
+            if (mDividerColors != null) {
+                SlidingTabPalette.blendColors(from.dividerColors, to.dividerColors, fraction, mDividerColors);
+            }
+            // 0表示使用选中颜色，不能与具体的颜色混合
+            final int bottomIndicatorColor = from.bottomIndicatorColor != 0 && to.bottomIndicatorColor != 0
+                    ? TabColors.blendColors(to.bottomIndicatorColor, from.bottomIndicatorColor, fraction)
+                    : to.bottomIndicatorColor;
+            final int defaultTextColor = TabColors.blendColors(to.defaultTextColor, from.defaultTextColor, fraction);
+            mDefaultTextColor = defaultTextColor;
+            selectedIndicatorColor = mIndicatorColors[0];
+            mBottomIndicatorColor = bottomIndicatorColor;
+            // 逐帧只混合绘制用到的颜色，最后一帧的applyPalette再完整地应用一次
+            mTabStrip.animateColors(defaultTextColor, mIndicatorColors, bottomIndicatorColor, mDividerColors);
+            if (mBackground != null) {
+                final int color = TabColors.blendColors(to.getBackgroundColor(), from.getBackgroundColor(), fraction);
+                mStripBackground.setColor(color);
+                mBackground.setColor(color);
+            }
+        }
     }
 
-    private class TabClickListener implements OnClickListener {
+    private class TitlePrecomputeCallback implements TabTitlePrecomputer.Callback {
         @Override
-        public void onClick(View v) {
-            for (int i = 0; i < mTabStrip.getChildCount(); i++) {
-                if (v == mTabStrip.getChildAt(i)) {
-                    mViewPager.setCurrentItem(i);
-                    return;
-                }
+        public void onTitlesPrecomputed(final TabTitlePrecomputer result) {
+            if (Looper.myLooper() == Looper.getMainLooper()) {
+                attachPrecomputedTabs(result);
+            } else {
+                // API 24以下，控件没有attach时在后台线程调用View.post会进入该线程自己的队列而永远不会执行
+                mMainHandler.post(new Runnable() {
+                    @Override
+                    public void run() {
+                        attachPrecomputedTabs(result);
+                    }
+                });
+            }
+        }
+    }
+
+    /**
+     * 一帧内提交的tab更新，按位置保存，同一个tab的同一项只保留最后一次的值
+     */
+    private static final class TabUpdates {
+        final SparseArray<CharSequence> titles = new SparseArray<>();
+        final SparseIntArray badges = new SparseIntArray();
+        final SparseBooleanArray enabled = new SparseBooleanArray();
+
+        void clear() {
+            titles.clear();
+            badges.clear();
+            enabled.clear();
+        }
+    }
+
+    private class PagerAdapterObserver extends DataSetObserver {
+        @Override
+        public void onChanged() {
+            // 状态按位置保存，数据变化后同一位置可能是另一个页面，以适配器的数据为准
+            mTitleOverrides.clear();
+            clearAppliedTabState();
+            // 延迟创建的tab会直接使用最新的数据
+            if (mViewPager != null && !mPopulatePending) {
+                updateTabStrip();
             }
         }
+
+        @Override
+        public void onInvalidated() {
+            onChanged();
+        }
     }
 
-    private static int sp2px(Context context, float dpValue) {
-        final float scale = context.getResources().getDisplayMetrics().scaledDensity;
-        return (int) (dpValue * scale + 0.5f);
+    private class TabClickListener implements OnClickListener, SlidingTabStrip.OnTabClickListener {
+        @Override
+        public void onClick(View v) {
+            onTabClick(mTabStrip.indexOfTab(v));
+        }
+
+        @Override
+        public void onTabClick(int position) {
+            if (position >= 0 && mViewPager != null && !mDisabledTabs.get(position)) {
+                mViewPager.setCurrentItem(position);
+            }
+        }
     }
 }
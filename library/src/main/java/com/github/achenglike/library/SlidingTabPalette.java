@@ -0,0 +1,131 @@
+package com.github.achenglike.library;
+
+import android.graphics.drawable.ColorDrawable;
+import android.graphics.drawable.Drawable;
+
+import com.github.achenglike.core.TabColors;
+
+/**
+ * All colors of a {@link SlidingTabLayout}, for example a day and a night
+ * theme. A palette is immutable and applied at once with
+ * {@link SlidingTabLayout#setPalette(SlidingTabPalette)} or crossfaded with
+ * {@link SlidingTabLayout#animatePalette(SlidingTabPalette, long)}, so one
+ * palette instance can be shared by every tab layout of the app.
+ */
+public final class SlidingTabPalette {
+
+    private static final int DEFAULT_TEXT_COLOR = 0xFF000000;
+
+    final int defaultTextColor;
+    final int[] indicatorColors;
+    final int bottomIndicatorColor;
+    final int[] dividerColors;
+    final Drawable background;
+
+    private SlidingTabPalette(Builder builder) {
+        defaultTextColor = builder.mDefaultTextColor;
+        indicatorColors = builder.mIndicatorColors.clone();
+        bottomIndicatorColor = builder.mBottomIndicatorColor;
+        dividerColors = builder.mDividerColors == null ? null : builder.mDividerColors.clone();
+        background = builder.mBackground;
+    }
+
+    public int getDefaultTextColor() {
+        return defaultTextColor;
+    }
+
+    public int getBottomIndicatorColor() {
+        return bottomIndicatorColor;
+    }
+
+    /**
+     * @return the background color, or 0 if the background is not a
+     *         {@link ColorDrawable}.
+     */
+    int getBackgroundColor() {
+        return background instanceof ColorDrawable ? ((ColorDrawable) background).getColor() : 0;
+    }
+
+    /**
+     * Blends {@code from} towards {@code to} and writes one color per tab
+     * into {@code out}, whose length is the larger of both array lengths.
+     * Both arrays are treated as circular arrays.
+     */
+    static void blendColors(int[] from, int[] to, float ratio, int[] out) {
+        for (int i = 0; i < out.length; i++) {
+            out[i] = TabColors.blendColors(to[i % to.length], from[i % from.length], ratio);
+        }
+    }
+
+    /**
+     * Builds a {@link SlidingTabPalette}. Colors that are not set keep the
+     * value of the palette the builder was created from.
+     */
+    public static final class Builder {
+        private int mDefaultTextColor = DEFAULT_TEXT_COLOR;
+        private int[] mIndicatorColors = {DEFAULT_TEXT_COLOR};
+        private int mBottomIndicatorColor;
+        private int[] mDividerColors;
+        private Drawable mBackground;
+
+        public Builder() {
+        }
+
+        public Builder(SlidingTabPalette palette) {
+            mDefaultTextColor = palette.defaultTextColor;
+            mIndicatorColors = palette.indicatorColors;
+            mBottomIndicatorColor = palette.bottomIndicatorColor;
+            mDividerColors = palette.dividerColors;
+            mBackground = palette.background;
+        }
+
+        public Builder setDefaultTextColor(int color) {
+            mDefaultTextColor = color;
+            return this;
+        }
+
+        /**
+         * @see SlidingTabLayout#setSelectedIndicatorColors(int...)
+         */
+        public Builder setSelectedIndicatorColors(int... colors) {
+            if (colors == null || colors.length == 0) {
+                throw new IllegalArgumentException("At least one indicator color is required");
+            }
+            mIndicatorColors = colors;
+            return this;
+        }
+
+        /**
+         * @param color the color of the indicator, or 0 to use the selected
+         *              indicator colors
+         */
+        public Builder setBottomIndicatorColor(int color) {
+            mBottomIndicatorColor = color;
+            return this;
+        }
+
+        /**
+         * @param colors the divider colors, or {@code null} to keep the
+         *               theme based default
+         */
+        public Builder setDividerColors(int... colors) {
+            mDividerColors = colors == null || colors.length == 0 ? null : colors;
+            return this;
+        }
+
+        /**
+         * @param background the background of the tab layout, or
+         *                   {@code null} to leave it unchanged. Color
+         *                   backgrounds are crossfaded by
+         *                   {@link SlidingTabLayout#animatePalette(SlidingTabPalette, long)}.
+         */
+        public Builder setBackground(Drawable background) {
+            mBackground = background;
+            return this;
+        }
+
+        public SlidingTabPalette build() {
+            return new SlidingTabPalette(this);
+        }
+    }
+}
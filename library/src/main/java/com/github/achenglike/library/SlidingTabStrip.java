@@ -1,30 +1,68 @@
 package com.github.achenglike.library;
 
 import android.content.Context;
-import android.content.res.TypedArray;
+import android.content.res.ColorStateList;
 import android.graphics.Canvas;
-import android.graphics.Color;
+import android.graphics.ColorFilter;
 import android.graphics.Paint;
+import android.graphics.PorterDuff;
+import android.graphics.PorterDuffColorFilter;
+import android.graphics.Rect;
 import android.graphics.RectF;
+import android.graphics.drawable.Drawable;
+import android.os.Build;
+import android.text.Layout;
+import android.text.TextPaint;
+import android.text.Spanned;
+import android.text.TextUtils;
 import android.util.AttributeSet;
+import android.util.SparseArray;
 import android.util.TypedValue;
+import android.view.MotionEvent;
+import android.view.SoundEffectConstants;
 import android.view.View;
-import android.view.animation.AccelerateInterpolator;
-import android.view.animation.DecelerateInterpolator;
+import android.view.ViewConfiguration;
+import android.view.ViewGroup;
 import android.widget.LinearLayout;
 import android.widget.TextView;
 
+import com.github.achenglike.core.ColorBlendTable;
+import com.github.achenglike.core.DividerBatch;
+import com.github.achenglike.core.IndicatorMotion;
+import com.github.achenglike.core.SimpleTabColorizer;
+import com.github.achenglike.core.SlidingTabGeometry;
+import com.github.achenglike.core.TabColorizer;
+import com.github.achenglike.core.TabColors;
+import com.github.achenglike.core.TabMetrics;
+
 
 
 public class SlidingTabStrip extends LinearLayout {
 
-    private static final float SELECTED_INDICATOR_THICKNESS_DIPS = 1.5f;
+    /**
+     * 扁平化模式下点击tab的回调
+     */
+    interface OnTabClickListener {
+        void onTabClick(int position);
+    }
+
     private static final int DEFAULT_SELECTED_INDICATOR_COLOR = 0xFFD82A3E;
 
-    private static final int DEFAULT_DIVIDER_THICKNESS_DIPS = 1;
     private static final byte DEFAULT_DIVIDER_COLOR_ALPHA = 0x20;
     private static final float DEFAULT_DIVIDER_HEIGHT = 0.5f;
 
+    /**
+     * 文字颜色按SlidingTabGeometry.TEXT_FADE_STEPS级量化后可以缓存对应的ColorFilter，绘制时不再分配对象
+     */
+    private static final int MAX_CACHED_TEXT_FILTERS = 256;
+
+    /**
+     * 与attrs.xml中indicator_motion的枚举值顺序一致
+     */
+    private static final IndicatorMotion[] INDICATOR_MOTIONS = {
+            IndicatorMotion.LINEAR, IndicatorMotion.STRETCH, IndicatorMotion.ELASTIC, IndicatorMotion.SLIDE
+    };
+
     /**
      * 为蓝色的标志线
      */
@@ -41,7 +79,24 @@ public class SlidingTabStrip extends LinearLayout {
      */
     private int mDefaultTextColor = 0xFF000000;
 
-    private static int INDICATOR_WIDTH;
+    /**
+     * 标志条的固定宽度，每个实例独立设置
+     */
+    private int mIndicatorWidth;
+
+    /**
+     * 标志条宽度与标题文字宽度一致，文字宽度在布局时从缓存中读取，不在onDraw中测量
+     */
+    private boolean mIndicatorMatchTextWidth;
+    private int mTitleViewId;
+    private final TitleWidthCache mTitleWidthCache = new TitleWidthCache();
+    private int[] mTitleWidths = new int[0];
+
+    /**
+     * 单次测量时每个tab的自然宽度，onLayout按mGeometry中的位置摆放子View
+     */
+    private int[] mNaturalWidths = new int[0];
+    private boolean mSinglePassLayout;
 
     /**
      * 底部滑动条颜色
@@ -54,14 +109,17 @@ public class SlidingTabStrip extends LinearLayout {
     private boolean mHasTitleDivider;
     private final Paint mDividerPaint;
     private final float mDividerHeight;
+    /**
+     * 按颜色分组的分割线，在layout和颜色变化后重建，onDraw中每种颜色只调用一次drawLines
+     */
+    private final DividerBatch mDividerBatch = new DividerBatch();
+    private boolean mDividersDirty = true;
 
-    private SlidingTabLayout.TabColorizer mCustomTabColorizer;
+    private TabColorizer mCustomTabColorizer;
     private final SimpleTabColorizer mDefaultTabColorizer;
 
     private float density;
 
-    private int mLastIndex = -1;
-    private int mCurrentIndex = 0;
     private RectF mRectF;
     private float radius;
     private float mLeftPadding; //整个slidingTabLayout左边padding值
@@ -69,29 +127,102 @@ public class SlidingTabStrip extends LinearLayout {
 
     private boolean mTitleTabHorizontalMatch;
 
+    /**
+     * 虚拟化模式：只有可见窗口内的tab才有真实的View，其余tab只保留缓存的宽度和偏移
+     */
+    private boolean mVirtualized;
+    private int mVirtualTabCount;
+    private int mVirtualTabHeight;
+    private int[] mVirtualNaturalWidths = new int[0];
+    private int[] mVirtualTitleWidths;
+
+    /**
+     * 扁平化模式：在虚拟化模式的基础上不创建任何tab View，标题由strip使用缓存的Layout直接绘制，点击由strip自己判断
+     */
+    private Layout[] mFlatTitles;
+    private int[] mFlatTitleLefts;
+    private TextPaint mFlatTitlePaint;
+    private OnTabClickListener mOnTabClickListener;
+    private final Rect mClipBounds = new Rect();
+    private float mTouchDownX;
+    private float mTouchDownY;
+    private boolean mTouchIsClick;
+    private final SparseArray<View> mVirtualTabViews = new SparseArray<>();
+
+    /**
+     * 每个tab的位置以及预先计算好的标志条边界，onDraw时只需要查表和插值
+     */
+    private final SlidingTabGeometry mGeometry = new SlidingTabGeometry();
+    private final Rect mIndicatorDirtyRect = new Rect();
+
+    /**
+     * 选中文字的颜色不再通过TextView.setTextColor修改。渐变中的两个tab（选中的和下一个）的标题TextView各自使用一个硬件层，
+     * 每帧只通过setLayerPaint修改层的ColorFilter，标题不需要重新录制，也不需要逐帧的离屏saveLayer。
+     * 层的ColorFilter会染上TextView画的所有内容，所以带背景或图标的标题仍然使用setTextColor
+     */
+    private final TextView[] mTextFadeViews = new TextView[2];
+    private final Paint[] mTextFadePaints = {new Paint(), new Paint()};
+    private final int[] mTextFadeColors = new int[2];
+    /**
+     * 使用setTextColor渐变的标题原来的颜色，停止渐变时恢复；为null表示这个标题使用硬件层
+     */
+    private final ColorStateList[] mTextFadeRestoreColors = new ColorStateList[2];
+    private final SparseArray<ColorFilter> mTextFadeFilters = new SparseArray<>();
+
+    private TabMetrics mMetrics;
+
+    /**
+     * 后台排版标题期间显示的骨架占位条数量，tab添加后清零
+     */
+    private int mSkeletonTabCount;
+    private int mSkeletonTabHeight;
+    private Paint mSkeletonPaint;
+
+    /**
+     * 可选的独立标志条View，放在ViewGroupOverlay中，滑动时只修改translationX/scaleX，strip本身不需要重绘。
+     * 此模式下选中文字的颜色在选中tab变化时切换，不再逐帧渐变
+     */
+    private boolean mIndicatorLayerEnabled;
+    private IndicatorLayerView mIndicatorLayer;
+    private int mLayerTextPosition = -1;
+
+    /**
+     * 可选的颜色渐变查找表，开启后每帧的颜色计算只是一次数组读取
+     */
+    private ColorBlendTable mColorBlendTable;
+
+    /**
+     * 配色动画期间颜色查找表和分割线批次不再逐帧重建，只混合实际绘制的颜色，动画结束时由applyColors重建一次
+     */
+    private boolean mColorsAnimating;
+
     SlidingTabStrip(Context context) {
-        this(context, null);
+        this(context, null, SlidingTabStyle.obtain(context, null));
     }
 
-    SlidingTabStrip(Context context, AttributeSet attrs) {
+    SlidingTabStrip(Context context, AttributeSet attrs, SlidingTabStyle style) {
         super(context, attrs);
 
         density = getResources().getDisplayMetrics().density;
 
-        INDICATOR_WIDTH = (int) (16 * density + .5f);
-
-        // 获取自定义属性
-        TypedArray styled = context.obtainStyledAttributes(attrs, R.styleable.SlidingTab, 0, 0);
-        mHasBottomIndicator = styled.getBoolean(R.styleable.SlidingTab_has_bottom_indicator, true);
-        mSelectedIndicatorThickness = styled.getDimension(R.styleable.SlidingTab_indicator_thickness,
-                SELECTED_INDICATOR_THICKNESS_DIPS * density);
-        mHasTitleDivider = styled.getBoolean(R.styleable.SlidingTab_has_title_divider, false);
-        float mDividerThickness = styled.getDimension(R.styleable.SlidingTab_divider_thickness,
-                DEFAULT_DIVIDER_THICKNESS_DIPS * density);
-        mTitleTabHorizontalMatch = styled.getBoolean(R.styleable.SlidingTab_title_tab_horizontal_match, true);
-        mLeftPadding = styled.getDimension(R.styleable.SlidingTab_left_padding, 0);
-        mRightPadding = styled.getDimension(R.styleable.SlidingTab_right_padding, 0);
-        styled.recycle();
+        // 自定义属性由SlidingTabLayout解析后传入
+        mHasBottomIndicator = style.hasBottomIndicator;
+        mSelectedIndicatorThickness = style.indicatorThickness;
+        mHasTitleDivider = style.hasTitleDivider;
+        float mDividerThickness = style.dividerThickness;
+        mTitleTabHorizontalMatch = style.titleTabHorizontalMatch;
+        mLeftPadding = style.leftPadding;
+        mRightPadding = style.rightPadding;
+        int motion = style.indicatorMotion;
+        mIndicatorMatchTextWidth = style.indicatorMatchTextWidth;
+        mIndicatorWidth = style.indicatorWidth;
+
+        if (motion >= 0 && motion < INDICATOR_MOTIONS.length) {
+            mGeometry.setIndicatorMotion(INDICATOR_MOTIONS[motion]);
+        }
+
+        mGeometry.setIndicatorWidth(mIndicatorWidth);
+        mGeometry.setEdgePadding((int) mLeftPadding, (int) mRightPadding);
 
         // 默认情况下ViewGroup的onDraw方法是不会被调用的
         // 设置为false后，就告诉需进行绘制操作
@@ -103,7 +234,7 @@ public class SlidingTabStrip extends LinearLayout {
 
         mDefaultTabColorizer = new SimpleTabColorizer();
         mDefaultTabColorizer.setIndicatorColors(DEFAULT_SELECTED_INDICATOR_COLOR);
-        mDefaultTabColorizer.setDividerColors(setColorAlpha(themeForegroundColor, DEFAULT_DIVIDER_COLOR_ALPHA));
+        mDefaultTabColorizer.setDividerColors(TabColors.setColorAlpha(themeForegroundColor, DEFAULT_DIVIDER_COLOR_ALPHA));
 
         mSelectedIndicatorPaint = new Paint();
 
@@ -116,240 +247,1165 @@ public class SlidingTabStrip extends LinearLayout {
 
     void setCustomTabColorizer(SlidingTabLayout.TabColorizer customTabColorizer) {
         mCustomTabColorizer = customTabColorizer;
+        onTabColorsChanged();
         invalidate();
     }
 
+    /**
+     * @param steps 每对相邻tab之间预先计算的渐变级数，小于等于0时关闭查找表
+     */
+    void setColorBlendSteps(int steps) {
+        if (steps <= 0) {
+            mColorBlendTable = null;
+        } else if (mColorBlendTable == null || mColorBlendTable.getSteps() != steps) {
+            mColorBlendTable = new ColorBlendTable(steps);
+            mColorBlendTable.setDefaultTextColor(mDefaultTextColor);
+            mColorBlendTable.setColorizer(getTabColorizer());
+        }
+        invalidate();
+    }
+
+    private void onTabColorsChanged() {
+        mColorsAnimating = false;
+        mDividersDirty = true;
+        if (mColorBlendTable != null) {
+            mColorBlendTable.setColorizer(getTabColorizer());
+        }
+        updateTextFade();
+    }
+
     void setSelectedIndicatorColors(int... colors) {
         // Make sure that the custom colorizer is removed
         mCustomTabColorizer = null;
         mDefaultTabColorizer.setIndicatorColors(colors);
+        onTabColorsChanged();
+        // 选中文字的颜色由tab的层画笔根据colorizer叠加，只需要重绘
+        invalidate();
+    }
+
+    void setIndicatorMotion(IndicatorMotion motion) {
+        mGeometry.setIndicatorMotion(motion);
         invalidate();
+    }
+
+    void setIndicatorMatchTextWidth(boolean matchTextWidth) {
+        if (mIndicatorMatchTextWidth != matchTextWidth) {
+            mIndicatorMatchTextWidth = matchTextWidth;
+            if (!matchTextWidth) {
+                mGeometry.setTabIndicatorWidths(null);
+            }
+            requestLayout();
+            invalidate();
+        }
+    }
+
+    void setIndicatorWidth(int indicatorWidth) {
+        if (mIndicatorWidth != indicatorWidth) {
+            mIndicatorWidth = indicatorWidth;
+            mGeometry.setIndicatorWidth(indicatorWidth);
+            if (mIndicatorLayer != null && getHeight() > 0) {
+                layoutIndicatorLayer();
+            }
+            invalidate();
+        }
+    }
+
+    void setIndicatorLayerEnabled(boolean enabled) {
+        if (mIndicatorLayerEnabled != enabled) {
+            mIndicatorLayerEnabled = enabled;
+            if (!enabled && mIndicatorLayer != null) {
+                getOverlay().remove(mIndicatorLayer);
+                mIndicatorLayer = null;
+            }
+            requestLayout();
+            invalidate();
+        }
+    }
 
-        // 设置为可以实时刷新颜色
-        int childCount = getChildCount();
-        for (int i=0;i<childCount;i++) {
-            if (i == mCurrentIndex) {
-                TextView textView = (TextView) getChildAt(i);
-                int newColor = colors[mCurrentIndex % colors.length];
-                textView.setTextColor(newColor);
-                textView.invalidate();
+    /**
+     * 只有在API 18以上并且开启硬件加速时，移动独立View才不需要重绘，否则回退到在onDraw中绘制
+     */
+    private boolean isIndicatorLayerActive() {
+        return mIndicatorLayerEnabled && mHasBottomIndicator
+                && Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN_MR2
+                && isHardwareAccelerated();
+    }
+
+    private void layoutIndicatorLayer() {
+        if (!isIndicatorLayerActive()) {
+            if (mIndicatorLayer != null) {
+                mIndicatorLayer.setVisibility(INVISIBLE);
             }
+            return;
+        }
+        if (mIndicatorLayer == null) {
+            mIndicatorLayer = new IndicatorLayerView(getContext());
+            getOverlay().add(mIndicatorLayer);
+        }
+        final int height = getHeight();
+        mIndicatorLayer.setRadius(radius);
+        mIndicatorLayer.layout(0, (int) (height - mSelectedIndicatorThickness), mIndicatorWidth, height);
+        moveIndicatorLayer();
+        // 布局之后会整体重绘，之后滑动时只在选中文字的tab变化时刷新
+        mLayerTextPosition = getLayerTextPosition();
+    }
+
+    /**
+     * 把标志条View移动到mGeometry中当前的位置
+     */
+    private void moveIndicatorLayer() {
+        final IndicatorLayerView layer = mIndicatorLayer;
+        if (!updateIndicatorBounds()) {
+            layer.setVisibility(INVISIBLE);
+            return;
+        }
+        layer.setVisibility(VISIBLE);
+        layer.setColor(mBottomIndicatorColor == 0 ? mGeometry.getIndicatorColor() : mBottomIndicatorColor);
+        layer.moveTo(mGeometry.getIndicatorLeft(), mGeometry.getIndicatorRight());
+    }
+
+    boolean isIndicatorMatchTextWidth() {
+        return mIndicatorMatchTextWidth;
+    }
+
+    /**
+     * @param titleViewId 自定义tab布局中标题TextView的id，0表示tab本身就是TextView
+     */
+    void setTabTitleViewId(int titleViewId) {
+        mTitleViewId = titleViewId;
+    }
+
+    /**
+     * @return the cached width of the title text of {@code tabView}, or 0 if
+     *         the tab has no title view.
+     */
+    int measureTitleWidth(View tabView) {
+        final TextView titleView = findTitleView(tabView);
+        return titleView != null ? mTitleWidthCache.getWidth(titleView) : 0;
+    }
+
+    /**
+     * Seeds the title width cache with a width measured in the background,
+     * so measuring {@code tabView} does not measure its title again.
+     */
+    void putTitleWidth(View tabView, TextPaint measuredWith, int width) {
+        final TextView titleView = findTitleView(tabView);
+        if (titleView != null) {
+            mTitleWidthCache.putWidth(titleView, measuredWith, width);
         }
+    }
 
+    /**
+     * @return 显示标题的TextView，tab中没有TextView时返回null
+     */
+    private TextView findTitleView(View tabView) {
+        final TabViewHolder holder = TabViewHolder.get(tabView);
+        if (holder != null) {
+            return holder.titleView;
+        }
+        View titleView = mTitleViewId != 0 ? tabView.findViewById(mTitleViewId) : null;
+        if (titleView == null) {
+            titleView = tabView;
+        }
+        return titleView instanceof TextView ? (TextView) titleView : null;
     }
 
     void setDividerColors(int... colors) {
         // Make sure that the custom colorizer is removed
         mCustomTabColorizer = null;
         mDefaultTabColorizer.setDividerColors(colors);
+        onTabColorsChanged();
         invalidate();
     }
 
     void setDefaultTextColor(int colors) {
         mDefaultTextColor = colors;
+        if (mColorBlendTable != null) {
+            mColorBlendTable.setDefaultTextColor(colors);
+        }
+        // 先停止渐变，使用setTextColor渐变的标题恢复原来的颜色后才能设置新的默认颜色
+        for (int i = 0; i < mTextFadeViews.length; i++) {
+            releaseTextFadeSlot(i);
+        }
 
-        // 设置为可以实时刷新颜色
-        int childCount = getChildCount();
-        for (int i=0;i<childCount;i++) {
-            if (i != mCurrentIndex) {
-                TextView textView = (TextView) getChildAt(i);
-                textView.setTextColor(mDefaultTextColor);
-                textView.invalidate();
+        // 设置为可以实时刷新颜色，选中的tab在层画笔中以此为底色做渐变
+        int tabCount = getTabCount();
+        for (int i=0;i<tabCount;i++) {
+            View tabView = getTabView(i);
+            if (tabView instanceof TextView) {
+                ((TextView) tabView).setTextColor(mDefaultTextColor);
             }
         }
+        updateTextFade();
+        invalidate();
     }
 
     void setBottomIndicatorColor(int color) {
         mBottomIndicatorColor = color;
+        if (mIndicatorLayer != null && isIndicatorLayerActive()) {
+            moveIndicatorLayer();
+        }
     }
 
-    void onViewPagerPageChanged(int position, float positionOffset) {
-        mSelectedPosition = position;
-        mSelectionOffset = positionOffset;
-        invalidate();
+    void setMetrics(TabMetrics metrics) {
+        mMetrics = metrics;
     }
 
-    void onViewPagerSelected(int position) {
-        mCurrentIndex = position;
+    @Override
+    public void invalidate() {
+        if (mMetrics != null) {
+            mMetrics.recordInvalidation();
+        }
+        super.invalidate();
+    }
+
+    @Override
+    public void invalidate(Rect dirty) {
+        if (mMetrics != null) {
+            mMetrics.recordInvalidation();
+        }
+        super.invalidate(dirty);
+    }
+
+    /**
+     * Switches the strip into virtualized mode with the given natural tab
+     * widths. Only tabs attached through {@link #attachVirtualTab(int, View)}
+     * have real views, every other tab is represented by its cached offset.
+     *
+     * @param titleWidths the title text widths used when the indicator
+     *                    matches the text width, may be {@code null}
+     */
+    void setVirtualTabs(int[] naturalWidths, int[] titleWidths, int tabHeight) {
+        mVirtualized = true;
+        mVirtualTabCount = naturalWidths.length;
+        mVirtualNaturalWidths = naturalWidths;
+        mVirtualTitleWidths = titleWidths;
+        mVirtualTabHeight = tabHeight;
+        layoutVirtualTabs(0);
+        requestLayout();
         invalidate();
     }
 
-    AccelerateInterpolator interpolator = new AccelerateInterpolator();
-    DecelerateInterpolator decelerateInterpolator = new DecelerateInterpolator();
     /**
-     * 在onDraw方法当中主要是对底部蓝色标志条进行绘制操作
+     * Shows {@code count} placeholder bars until tabs are added, or hides
+     * them when {@code count} is 0.
      */
-    @Override
-    protected void onDraw(Canvas canvas) {
+    void setSkeletonTabs(int count, int tabHeight) {
+        if (mSkeletonTabCount == count && mSkeletonTabHeight == tabHeight) {
+            return;
+        }
+        mSkeletonTabCount = count;
+        mSkeletonTabHeight = tabHeight;
+        if (count > 0 && mSkeletonPaint == null) {
+            mSkeletonPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+        }
+        requestLayout();
+        invalidate();
+    }
+
+    private boolean isShowingSkeleton() {
+        return mSkeletonTabCount > 0 && getTabCount() == 0;
+    }
+
+    private void drawSkeleton(Canvas canvas) {
+        final int width = getWidth();
         final int height = getHeight();
+        final float minSlotWidth = 64 * density;
+        final float slotWidth = Math.max(minSlotWidth, width / (float) mSkeletonTabCount);
+        final float barHeight = Math.min(height / 5f, 8 * density);
+        final float top = (height - barHeight) / 2f;
+        // 占位条使用默认文字颜色的浅色
+        mSkeletonPaint.setColor(TabColors.setColorAlpha(mDefaultTextColor, (byte) 0x20));
+        for (int i = 0; i < mSkeletonTabCount; i++) {
+            float slotLeft = i * slotWidth;
+            if (slotLeft >= width) {
+                break;
+            }
+            mRectF.set(slotLeft + slotWidth * 0.2f, top, slotLeft + slotWidth * 0.8f, top + barHeight);
+            canvas.drawRoundRect(mRectF, barHeight / 2f, barHeight / 2f, mSkeletonPaint);
+        }
+    }
+
+    /**
+     * Switches the strip into flattened mode. The tabs are laid out like
+     * virtual tabs, but no view is ever attached: the strip draws every
+     * title from {@code titles} itself and reports clicks through the
+     * {@link OnTabClickListener}.
+     *
+     * @param titleLefts  the left padding of each title inside its tab
+     * @param titleWidths the text width of each title
+     * @param paint       the paint the titles were laid out with, its color
+     *                    is changed while drawing
+     */
+    void setFlatTabs(Layout[] titles, int[] naturalWidths, int[] titleLefts, int[] titleWidths,
+                     int tabHeight, TextPaint paint) {
+        mFlatTitles = titles;
+        mFlatTitleLefts = titleLefts;
+        mFlatTitlePaint = paint;
+        setVirtualTabs(naturalWidths, titleWidths, tabHeight);
+    }
+
+    boolean isFlattened() {
+        return mFlatTitles != null;
+    }
+
+    /**
+     * 一次设置所有颜色：只遍历一次子View，最后只刷新一次
+     *
+     * @param dividerColors 为null时保留当前的分割线颜色
+     */
+    void applyColors(int defaultTextColor, int[] indicatorColors, int bottomIndicatorColor, int[] dividerColors) {
+        mCustomTabColorizer = null;
+        mDefaultTabColorizer.setIndicatorColors(indicatorColors);
+        if (dividerColors != null) {
+            mDefaultTabColorizer.setDividerColors(dividerColors);
+        }
+        mBottomIndicatorColor = bottomIndicatorColor;
+        mDefaultTextColor = defaultTextColor;
+        if (mColorBlendTable != null) {
+            mColorBlendTable.setDefaultTextColor(defaultTextColor);
+        }
+        onTabColorsChanged();
+
         final int childCount = getChildCount();
-        final int dividerHeightPx = (int) (Math.min(Math.max(0f, mDividerHeight), 1f) * height);
-        final SlidingTabLayout.TabColorizer tabColorizer = mCustomTabColorizer != null ? mCustomTabColorizer
-                : mDefaultTabColorizer;
+        for (int i = 0; i < childCount; i++) {
+            View child = getChildAt(i);
+            if (child instanceof TextView && ((TextView) child).getCurrentTextColor() != defaultTextColor) {
+                ((TextView) child).setTextColor(defaultTextColor);
+            }
+        }
+        if (mIndicatorLayer != null && isIndicatorLayerActive()) {
+            moveIndicatorLayer();
+        }
+        invalidate();
+    }
 
-        // Thick colored underline below the current selection
-        if (childCount > 0) {
-            TextView selectedTitle = (TextView) getChildAt(mSelectedPosition);
-
-
-            /*int offset = getIndicatorOffset(selectedTitle);
-            int left = selectedTitle.getLeft() + offset;
-            int right = selectedTitle.getRight() - offset;*/
-            int left;
-            int right;
-
-            if(mLeftPadding > 0 || mRightPadding > 0) {
-                //by tiancuicui 2017.08.24 目前免费课程分类页面设置了左右的padding
-                //如果给MCSlidingTabLayout设置了左右的padding， 第一个和最后一个tab的红色标志条要做相应的位移，以防止这两个地方的标志条没有相对于文字居中
-                int leftPadding = (int) mLeftPadding;
-                int rightPadding = (int) mRightPadding;
-                if(mSelectedPosition == 0) {
-                    //第一个tab的标志条要右移半个leftPadding, 以相对于文字居中
-                    left = selectedTitle.getRight() - (selectedTitle.getWidth() + INDICATOR_WIDTH) / 2 + leftPadding/2;
-                    right = selectedTitle.getRight() - (selectedTitle.getWidth() - INDICATOR_WIDTH) / 2 + leftPadding/2;
-                } else if(mSelectedPosition == childCount - 1) {
-                    //最后一个tab的标志条要左移半个rightPadding, 以相对于文字居中
-                    left = selectedTitle.getRight() - (selectedTitle.getWidth() + INDICATOR_WIDTH) / 2 - rightPadding/2;
-                    right = selectedTitle.getRight() - (selectedTitle.getWidth() - INDICATOR_WIDTH) / 2 - rightPadding/2;
-                } else {
-                    left = selectedTitle.getRight() - (selectedTitle.getWidth() + INDICATOR_WIDTH) / 2;
-                    right = selectedTitle.getRight() - (selectedTitle.getWidth() - INDICATOR_WIDTH) / 2;
-                }
-            } else {
-                left = selectedTitle.getRight() - (selectedTitle.getWidth() + INDICATOR_WIDTH) / 2;
-                right = selectedTitle.getRight() - (selectedTitle.getWidth() - INDICATOR_WIDTH) / 2;
+    /**
+     * 配色动画的一帧：只更新当前绘制用到的颜色，包括可见tab的文字、标志条、渐变中的tab和可见的分割线。
+     * 颜色查找表、分割线批次和不可见tab的文字颜色在动画结束时由{@link #applyColors}统一更新
+     *
+     * @param dividerColors 为null时保留当前的分割线颜色
+     */
+    void animateColors(int defaultTextColor, int[] indicatorColors, int bottomIndicatorColor, int[] dividerColors) {
+        mCustomTabColorizer = null;
+        mDefaultTabColorizer.setIndicatorColors(indicatorColors);
+        if (dividerColors != null) {
+            mDefaultTabColorizer.setDividerColors(dividerColors);
+        }
+        mBottomIndicatorColor = bottomIndicatorColor;
+        mDefaultTextColor = defaultTextColor;
+        mColorsAnimating = true;
+
+        final View parent = (View) getParent();
+        final int visibleLeft = parent != null ? parent.getScrollX() : 0;
+        final int visibleRight = parent != null ? visibleLeft + parent.getWidth() : getWidth();
+        final int childCount = getChildCount();
+        for (int i = 0; i < childCount; i++) {
+            View child = getChildAt(i);
+            if (child instanceof TextView && child.getRight() > visibleLeft && child.getLeft() < visibleRight
+                    && ((TextView) child).getCurrentTextColor() != defaultTextColor) {
+                ((TextView) child).setTextColor(defaultTextColor);
             }
+        }
+        updateIndicatorBounds();
+        updateTextFade();
+        if (mIndicatorLayer != null && isIndicatorLayerActive()) {
+            moveIndicatorLayer();
+        }
+        invalidate();
+    }
+
+    /**
+     * @return the blend table, or {@code null} while the colors are animated
+     *         and the table is out of date
+     */
+    private ColorBlendTable getActiveBlendTable() {
+        return mColorsAnimating ? null : mColorBlendTable;
+    }
 
+    int[] getIndicatorColors() {
+        return mDefaultTabColorizer.getIndicatorColors();
+    }
 
+    int[] getDividerColors() {
+        return mDefaultTabColorizer.getDividerColors();
+    }
 
-            // int right = selectedTitle.getRight() - (selectedTitle.getWidth() - INDICATOR_WIDTH) / 2;
+    /**
+     * Sets the text of a title or badge view inside {@code tabView}. A plain
+     * default tab whose width stays the same is only redrawn; every other
+     * change lays out the strip as usual.
+     */
+    void setTabText(View tabView, TextView textView, CharSequence text) {
+        final CharSequence oldText = textView.getText();
+        final boolean spanned = text instanceof Spanned || oldText instanceof Spanned;
+        if (!spanned && TextUtils.equals(oldText, text)) {
+            return;
+        }
+        final ViewGroup.LayoutParams lp = tabView.getLayoutParams();
+        if (textView != tabView || spanned || lp == null || tabView.getWidth() <= 0
+                || !TabViewHolder.isPlainText(tabView)
+                || mTitleWidthCache.getWidth(textView) != mTitleWidthCache.getWidth(textView.getPaint(), text)) {
+            textView.setText(text);
+            return;
+        }
+        // wrap_content的TextView修改文字时总会requestLayout。默认tab的宽度就是文字宽度加padding，
+        // 宽度不变时临时把布局参数固定为当前宽度，TextView只按原来的宽度重新生成文字排版并重绘
+        final int width = lp.width;
+        lp.width = tabView.getWidth();
+        try {
+            textView.setText(text);
+        } finally {
+            lp.width = width;
+        }
+    }
 
+    void setOnTabClickListener(OnTabClickListener listener) {
+        mOnTabClickListener = listener;
+    }
 
+    private void drawFlatTitles(Canvas canvas) {
+        final int count = mVirtualTabCount;
+        if (count == 0 || !canvas.getClipBounds(mClipBounds)) {
+            return;
+        }
+        // 只绘制与裁剪区域相交的tab
+        final int first = mGeometry.findTabAt(mClipBounds.left);
+        final int last = mGeometry.findTabAt(mClipBounds.right);
+        final int height = getHeight();
+        final TextPaint paint = mFlatTitlePaint;
+        for (int i = first; i <= last; i++) {
+            final Layout title = mFlatTitles[i];
+            if (title == null) {
+                continue;
+            }
+            final int tabLeft = mGeometry.getTabLeft(i);
+            final int extra = mGeometry.getTabRight(i) - tabLeft - mVirtualNaturalWidths[i];
+            paint.setColor(getFlatTitleColor(i));
+            final int saveCount = canvas.save();
+            canvas.translate(tabLeft + mFlatTitleLefts[i] + extra / 2f, (height - title.getHeight()) / 2f);
+            title.draw(canvas);
+            canvas.restoreToCount(saveCount);
+        }
+    }
 
-            int color = tabColorizer.getIndicatorColor(mSelectedPosition);
+    /**
+     * @return 与tab View的文字渐变一致的标题颜色
+     */
+    private int getFlatTitleColor(int position) {
+        int fadeLevel;
+        if (mIndicatorLayer != null && isIndicatorLayerActive()) {
+            fadeLevel = position == getLayerTextPosition() ? SlidingTabGeometry.TEXT_FADE_STEPS : 0;
+        } else if (position == mSelectedPosition) {
+            fadeLevel = SlidingTabGeometry.TEXT_FADE_STEPS - mGeometry.getTextFadeLevel();
+        } else if (position == mSelectedPosition + 1) {
+            fadeLevel = mGeometry.getTextFadeLevel();
+        } else {
+            fadeLevel = 0;
+        }
+        if (fadeLevel <= 0) {
+            return mDefaultTextColor;
+        }
+        final ColorBlendTable blendTable = getActiveBlendTable();
+        return blendTable != null
+                ? blendTable.getTextColor(position, fadeLevel, SlidingTabGeometry.TEXT_FADE_STEPS)
+                : SlidingTabGeometry.computeTextColor(getTabColorizer().getIndicatorColor(position),
+                        mDefaultTextColor, fadeLevel);
+    }
 
-            if (mSelectionOffset > 0f && mSelectedPosition < (getChildCount() - 1)) {
-                int nextColor = tabColorizer.getIndicatorColor(mSelectedPosition + 1);
-                if (color != nextColor) {
-                    color = blendColors(nextColor, color, mSelectionOffset);
+    @Override
+    public boolean onTouchEvent(MotionEvent event) {
+        if (mFlatTitles == null) {
+            return super.onTouchEvent(event);
+        }
+        switch (event.getActionMasked()) {
+            case MotionEvent.ACTION_DOWN:
+                mTouchDownX = event.getX();
+                mTouchDownY = event.getY();
+                mTouchIsClick = true;
+                return true;
+            case MotionEvent.ACTION_MOVE:
+                final int touchSlop = ViewConfiguration.get(getContext()).getScaledTouchSlop();
+                if (Math.abs(event.getX() - mTouchDownX) > touchSlop
+                        || Math.abs(event.getY() - mTouchDownY) > touchSlop) {
+                    mTouchIsClick = false;
                 }
+                return true;
+            case MotionEvent.ACTION_UP:
+                if (mTouchIsClick) {
+                    mTouchIsClick = false;
+                    int position = mGeometry.findTabAt((int) event.getX());
+                    if (position >= 0 && mOnTabClickListener != null) {
+                        playSoundEffect(SoundEffectConstants.CLICK);
+                        mOnTabClickListener.onTabClick(position);
+                    }
+                }
+                return true;
+            case MotionEvent.ACTION_CANCEL:
+                mTouchIsClick = false;
+                return true;
+            default:
+                return true;
+        }
+    }
+
+    /**
+     * Replaces the estimated width of a virtual tab with its real width. The
+     * strip is laid out again only if the width changed.
+     */
+    void setVirtualTabWidth(int position, int naturalWidth, int titleWidth) {
+        boolean changed = false;
+        if (mVirtualNaturalWidths[position] != naturalWidth) {
+            mVirtualNaturalWidths[position] = naturalWidth;
+            changed = true;
+        }
+        if (mVirtualTitleWidths != null && mVirtualTitleWidths[position] != titleWidth) {
+            mVirtualTitleWidths[position] = titleWidth;
+            mGeometry.invalidateIndicatorBounds();
+            changed = true;
+        }
+        if (changed) {
+            requestLayout();
+            invalidate();
+        }
+    }
+
+    /**
+     * Leaves virtualized mode. Attached virtual tabs must have been detached
+     * by the caller before.
+     */
+    void clearVirtualTabs() {
+        mVirtualized = false;
+        mVirtualTabCount = 0;
+        mVirtualNaturalWidths = new int[0];
+        mVirtualTitleWidths = null;
+        mFlatTitles = null;
+        mFlatTitleLefts = null;
+        mFlatTitlePaint = null;
+        mVirtualTabViews.clear();
+        mGeometry.setTabCount(0);
+    }
+
+    boolean isVirtualized() {
+        return mVirtualized;
+    }
+
+    int getTabCount() {
+        return mVirtualized ? mVirtualTabCount : getChildCount();
+    }
+
+    /**
+     * @return the view of the tab at {@code position}, or {@code null} if the
+     *         tab is virtualized and has no view right now.
+     */
+    View getTabView(int position) {
+        return mVirtualized ? mVirtualTabViews.get(position) : getChildAt(position);
+    }
+
+    int getTabLeft(int position) {
+        if (mVirtualized) {
+            return mGeometry.getTabLeft(position);
+        }
+        return getChildAt(position).getLeft();
+    }
+
+    int getTabRight(int position) {
+        if (mVirtualized) {
+            return mGeometry.getTabRight(position);
+        }
+        return getChildAt(position).getRight();
+    }
+
+    int getTabWidth(int position) {
+        return getTabRight(position) - getTabLeft(position);
+    }
+
+    int indexOfTab(View tabView) {
+        if (mVirtualized) {
+            int index = mVirtualTabViews.indexOfValue(tabView);
+            return index < 0 ? -1 : mVirtualTabViews.keyAt(index);
+        }
+        return indexOfChild(tabView);
+    }
+
+    /**
+     * @return the index of the tab containing {@code x}, clamped to the valid
+     *         tab range, or -1 if there are no tabs. Uses the tab bounds of the
+     *         last layout pass.
+     */
+    int findTabAt(int x) {
+        return mGeometry.findTabAt(x);
+    }
+
+    /**
+     * Adds a tab view for the virtual tab at {@code position} and lays it out
+     * at its cached offset without requesting a layout of the whole strip.
+     * The caller invalidates the strip once after attaching and detaching
+     * all tabs of a window change.
+     */
+    void attachVirtualTab(int position, View tabView) {
+        ViewGroup.LayoutParams lp = tabView.getLayoutParams();
+        if (lp == null) {
+            lp = generateDefaultLayoutParams();
+        }
+        mVirtualTabViews.put(position, tabView);
+        addViewInLayout(tabView, -1, lp, true);
+        layoutVirtualTab(position, tabView);
+        applyTabTextColor(tabView);
+        if (position == mSelectedPosition || position == mSelectedPosition + 1) {
+            updateTextFade();
+        }
+    }
+
+    /**
+     * Removes the view of the virtual tab at {@code position}.
+     *
+     * @return the removed view so that it can be recycled, or {@code null}
+     */
+    View detachVirtualTab(int position) {
+        View tabView = mVirtualTabViews.get(position);
+        if (tabView != null) {
+            mVirtualTabViews.remove(position);
+            removeViewInLayout(tabView);
+            releaseTextFade(tabView);
+        }
+        return tabView;
+    }
+
+    private void layoutVirtualTabs(int availableWidth) {
+        // 与LinearLayout的weight一致：横向充满时把剩余空间平分给每个tab
+        mGeometry.layoutTabs(mVirtualNaturalWidths, mVirtualTabCount, availableWidth, mTitleTabHorizontalMatch);
+    }
+
+    private void layoutVirtualTab(int position, View tabView) {
+        final int left = mGeometry.getTabLeft(position);
+        final int right = mGeometry.getTabRight(position);
+        final int top = getPaddingTop();
+        ViewGroup.LayoutParams lp = tabView.getLayoutParams();
+        int heightSpec = lp != null && lp.height >= 0
+                ? MeasureSpec.makeMeasureSpec(lp.height, MeasureSpec.EXACTLY)
+                : MeasureSpec.makeMeasureSpec(mVirtualTabHeight, MeasureSpec.EXACTLY);
+        tabView.measure(MeasureSpec.makeMeasureSpec(right - left, MeasureSpec.EXACTLY), heightSpec);
+        tabView.layout(left, top, right, top + tabView.getMeasuredHeight());
+    }
+
+    /**
+     * 非虚拟化模式下把子View的位置同步到mGeometry中
+     */
+    private void syncTabGeometry() {
+        if (mVirtualized) {
+            mGeometry.setTabIndicatorWidths(mIndicatorMatchTextWidth ? mVirtualTitleWidths : null);
+            return;
+        }
+        final int count = getChildCount();
+        mGeometry.setTabCount(count);
+        for (int i = 0; i < count; i++) {
+            View child = getChildAt(i);
+            mGeometry.setTabBounds(i, child.getLeft(), child.getRight());
+        }
+        if (mIndicatorMatchTextWidth) {
+            if (mTitleWidths.length < count) {
+                mTitleWidths = new int[count];
+            }
+            for (int i = 0; i < count; i++) {
+                mTitleWidths[i] = measureTitleWidth(getChildAt(i));
+            }
+            mGeometry.setTabIndicatorWidths(mTitleWidths);
+        }
+    }
+
+    @Override
+    protected void onMeasure(int widthMeasureSpec, int heightMeasureSpec) {
+        if (!mVirtualized) {
+            mSinglePassLayout = canMeasureInSinglePass();
+            if (mSinglePassLayout) {
+                measureTabsInSinglePass(widthMeasureSpec, heightMeasureSpec);
+            } else {
+                super.onMeasure(widthMeasureSpec, heightMeasureSpec);
+            }
+            if (isShowingSkeleton()) {
+                // 没有子View时保持tab的高度，避免添加tab时整个布局跳动
+                setMeasuredDimension(getMeasuredWidth(), resolveSize(
+                        mSkeletonTabHeight + getPaddingTop() + getPaddingBottom(), heightMeasureSpec));
+            }
+            return;
+        }
+        int availableWidth = MeasureSpec.getMode(widthMeasureSpec) == MeasureSpec.UNSPECIFIED ? 0
+                : MeasureSpec.getSize(widthMeasureSpec);
+        layoutVirtualTabs(availableWidth);
+        int width = Math.max(mGeometry.getContentWidth(), availableWidth);
+        int height = resolveSize(mVirtualTabHeight + getPaddingTop() + getPaddingBottom(), heightMeasureSpec);
+        setMeasuredDimension(width, height);
+    }
+
+    /**
+     * 所有tab都是WRAP_CONTENT或固定宽度，并且weight全部为0或全部相同（横向充满时默认tab的weight为1）时，
+     * 可以跳过LinearLayout按weight分配剩余空间后的第二次测量
+     */
+    private boolean canMeasureInSinglePass() {
+        final int count = getChildCount();
+        if (count == 0 || getOrientation() != HORIZONTAL) {
+            return false;
+        }
+        float weight = -1;
+        for (int i = 0; i < count; i++) {
+            ViewGroup.LayoutParams params = getChildAt(i).getLayoutParams();
+            if (!(params instanceof LayoutParams) || params.width == LayoutParams.MATCH_PARENT) {
+                return false;
+            }
+            float childWeight = ((LayoutParams) params).weight;
+            if (weight >= 0 && childWeight != weight) {
+                return false;
+            }
+            weight = childWeight;
+        }
+        return true;
+    }
 
-                //positionOffset是当前页面滑动比例，如果页面向右翻动，这个值不断变大，最后在趋近1的情况后突变为0。
-                // 如果页面向左翻动，这个值不断变小，最后变为0。
-                // Draw the selection partway between the tabs
-                TextView nextTitle = (TextView) getChildAt(mSelectedPosition + 1);
+    /**
+     * 每个子View只测量一次：未被子类修改的默认tab的自然宽度直接由缓存的文字宽度加padding得到，
+     * 剩余空间平分之后再以EXACTLY测量；自定义tab只有在宽度被拉伸时才会再测量一次
+     */
+    private void measureTabsInSinglePass(int widthMeasureSpec, int heightMeasureSpec) {
+        final int count = getChildCount();
+        if (mNaturalWidths.length < count) {
+            mNaturalWidths = new int[count];
+        }
+        final int horizontalPadding = getPaddingLeft() + getPaddingRight();
+        final int verticalPadding = getPaddingTop() + getPaddingBottom();
+        final boolean weighted = ((LayoutParams) getChildAt(0).getLayoutParams()).weight > 0;
+
+        for (int i = 0; i < count; i++) {
+            final View child = getChildAt(i);
+            final LayoutParams lp = (LayoutParams) child.getLayoutParams();
+            if (child.getVisibility() == GONE) {
+                mNaturalWidths[i] = 0;
+                continue;
+            }
+            final int margins = lp.leftMargin + lp.rightMargin;
+            if (lp.width >= 0) {
+                mNaturalWidths[i] = lp.width + margins;
+            } else if (TabViewHolder.isPlainText(child)) {
+                mNaturalWidths[i] = child.getPaddingLeft() + child.getPaddingRight()
+                        + mTitleWidthCache.getWidth((TextView) child) + margins;
+            } else {
+                child.measure(MeasureSpec.makeMeasureSpec(0, MeasureSpec.UNSPECIFIED),
+                        getChildMeasureSpec(heightMeasureSpec, verticalPadding, lp.height));
+                mNaturalWidths[i] = child.getMeasuredWidth() + margins;
+            }
+        }
 
+        final int availableWidth = MeasureSpec.getMode(widthMeasureSpec) == MeasureSpec.UNSPECIFIED ? 0
+                : Math.max(0, MeasureSpec.getSize(widthMeasureSpec) - horizontalPadding);
+        final int contentWidth = mGeometry.layoutTabs(mNaturalWidths, count, availableWidth, weighted);
 
-                /*int nextOffset = getIndicatorOffset(nextTitle);
-                left = (int) (interpolator.getInterpolation(mSelectionOffset) * (nextTitle.getLeft() + nextOffset) + (1.0f - interpolator.getInterpolation(mSelectionOffset)) * left);
-                right = (int) (mSelectionOffset * (nextTitle.getRight() - nextOffset) + (1.0f - mSelectionOffset)
-                        * right);*/
+        int maxHeight = 0;
+        for (int i = 0; i < count; i++) {
+            final View child = getChildAt(i);
+            if (child.getVisibility() == GONE) {
+                continue;
+            }
+            final LayoutParams lp = (LayoutParams) child.getLayoutParams();
+            final int width = mGeometry.getTabRight(i) - mGeometry.getTabLeft(i) - lp.leftMargin - lp.rightMargin;
+            if (TabViewHolder.isPlainText(child) || lp.width >= 0 || child.getMeasuredWidth() != width) {
+                child.measure(MeasureSpec.makeMeasureSpec(width, MeasureSpec.EXACTLY),
+                        getChildMeasureSpec(heightMeasureSpec, verticalPadding, lp.height));
+            }
+            maxHeight = Math.max(maxHeight, child.getMeasuredHeight() + lp.topMargin + lp.bottomMargin);
+        }
 
+        setMeasuredDimension(resolveSize(contentWidth + horizontalPadding, widthMeasureSpec),
+                resolveSize(Math.max(maxHeight + verticalPadding, getSuggestedMinimumHeight()), heightMeasureSpec));
+    }
+
+    @Override
+    protected void onLayout(boolean changed, int l, int t, int r, int b) {
+        if (!mVirtualized && mSinglePassLayout && getChildCount() == mGeometry.getTabCount()) {
+            final int paddingLeft = getPaddingLeft();
+            final int paddingTop = getPaddingTop();
+            final int count = getChildCount();
+            for (int i = 0; i < count; i++) {
+                final View child = getChildAt(i);
+                if (child.getVisibility() == GONE) {
+                    continue;
+                }
+                final LayoutParams lp = (LayoutParams) child.getLayoutParams();
+                final int left = paddingLeft + mGeometry.getTabLeft(i) + lp.leftMargin;
+                final int top = paddingTop + lp.topMargin;
+                child.layout(left, top, left + child.getMeasuredWidth(), top + child.getMeasuredHeight());
+            }
+        } else if (!mVirtualized) {
+            super.onLayout(changed, l, t, r, b);
+        } else {
+            for (int i = 0; i < mVirtualTabViews.size(); i++) {
+                layoutVirtualTab(mVirtualTabViews.keyAt(i), mVirtualTabViews.valueAt(i));
+            }
+        }
+        syncTabGeometry();
+        mGeometry.rebuildIndicatorBounds();
+        if (mHasTitleDivider) {
+            rebuildDividers();
+        }
+        layoutIndicatorLayer();
+        updateTextFade();
+    }
+
+    private void rebuildDividers() {
+        final int height = getHeight();
+        final int dividerHeightPx = (int) (Math.min(Math.max(0f, mDividerHeight), 1f) * height);
+        final int separatorTop = (height - dividerHeightPx) / 2;
+        mDividerBatch.rebuild(mGeometry, getTabColorizer(), separatorTop, separatorTop + dividerHeightPx);
+        mDividersDirty = false;
+    }
 
-                int l = nextTitle.getRight() - (nextTitle.getWidth() + INDICATOR_WIDTH) / 2;
-                int r = nextTitle.getRight() - (nextTitle.getWidth() - INDICATOR_WIDTH) / 2;
-                left = (int) (interpolator.getInterpolation(mSelectionOffset) * l + (1.0f - interpolator.getInterpolation(mSelectionOffset)) * left);
-                right = (int) (decelerateInterpolator.getInterpolation(mSelectionOffset) * r + (1.0f - decelerateInterpolator.getInterpolation(mSelectionOffset))
-                        * right);
+    private void drawDividers(Canvas canvas) {
+        if (mColorsAnimating) {
+            drawAnimatingDividers(canvas);
+            return;
+        }
+        if (mDividersDirty) {
+            rebuildDividers();
+        }
+        final DividerBatch batch = mDividerBatch;
+        if (batch.getGroupCount() == 0 || !canvas.getClipBounds(mClipBounds)) {
+            return;
+        }
+        // 线宽的一半可能落在裁剪区域内
+        final float halfStroke = mDividerPaint.getStrokeWidth() / 2f;
+        final float clipLeft = mClipBounds.left - halfStroke;
+        final float clipRight = mClipBounds.right + halfStroke;
+        for (int g = 0; g < batch.getGroupCount(); g++) {
+            final int first = batch.findFirstLine(g, clipLeft);
+            final int last = batch.findLastLine(g, clipRight);
+            if (first >= last) {
+                continue;
             }
+            mDividerPaint.setColor(batch.getGroupColor(g));
+            canvas.drawLines(batch.getGroupLines(g), first * 4, (last - first) * 4, mDividerPaint);
+        }
+    }
 
-            if (mLastIndex == -1 || mLastIndex != mCurrentIndex) {
-                if (mLastIndex != -1) {
-                    setTextColor(mLastIndex, mDefaultTextColor);
+    /**
+     * 配色动画期间分割线批次的颜色已经过期，只逐条绘制裁剪区域内的分割线
+     */
+    private void drawAnimatingDividers(Canvas canvas) {
+        final SlidingTabGeometry geometry = mGeometry;
+        final int lineCount = geometry.getTabCount() - 1;
+        if (lineCount <= 0 || !canvas.getClipBounds(mClipBounds)) {
+            return;
+        }
+        final int height = getHeight();
+        final int dividerHeightPx = (int) (Math.min(Math.max(0f, mDividerHeight), 1f) * height);
+        final int separatorTop = (height - dividerHeightPx) / 2;
+        final TabColorizer tabColorizer = getTabColorizer();
+        final int first = geometry.findTabAt(mClipBounds.left);
+        final int last = Math.min(lineCount - 1, geometry.findTabAt(mClipBounds.right));
+        for (int i = Math.max(0, first); i <= last; i++) {
+            final int x = geometry.getTabRight(i);
+            mDividerPaint.setColor(tabColorizer.getDividerColor(i));
+            canvas.drawLine(x, separatorTop, x, separatorTop + dividerHeightPx, mDividerPaint);
+        }
+    }
+
+    void onViewPagerPageChanged(int position, float positionOffset) {
+        final SlidingTabGeometry geometry = mGeometry;
+        final int oldPosition = mSelectedPosition;
+        final int oldLeft = geometry.getIndicatorLeft();
+        final int oldRight = geometry.getIndicatorRight();
+        final int oldColor = geometry.getIndicatorColor();
+        final int oldFadeLevel = geometry.getTextFadeLevel();
+        mSelectedPosition = position;
+        mSelectionOffset = positionOffset;
+        if (!updateIndicatorBounds()) {
+            updateTextFade();
+            invalidate();
+            return;
+        }
+        updateTextFade();
+        if (mIndicatorLayer != null && isIndicatorLayerActive()) {
+            moveIndicatorLayer();
+            // 只有扁平化模式的文字由strip绘制，选中文字的tab变化时才需要重绘strip，tab View的文字颜色由它们自己的层刷新
+            int textPosition = getLayerTextPosition();
+            if (textPosition != mLayerTextPosition) {
+                if (isFlattened()) {
+                    final int height = getHeight();
+                    mIndicatorDirtyRect.setEmpty();
+                    unionTabBounds(mIndicatorDirtyRect, Math.max(0, mLayerTextPosition), height);
+                    unionTabBounds(mIndicatorDirtyRect, textPosition, height);
+                    invalidate(mIndicatorDirtyRect);
                 }
-                mLastIndex = mCurrentIndex;
-                setTextColor(mCurrentIndex, color);
+                mLayerTextPosition = textPosition;
             }
+            return;
+        }
+        final int newLeft = geometry.getIndicatorLeft();
+        final int newRight = geometry.getIndicatorRight();
+        final boolean indicatorChanged = mHasBottomIndicator
+                && (oldLeft != newLeft || oldRight != newRight || oldColor != geometry.getIndicatorColor());
+        // tab View的文字渐变由它们自己的层刷新，只有扁平化模式的文字需要重绘strip
+        final boolean textChanged = isFlattened()
+                && (oldPosition != mSelectedPosition || oldFadeLevel != geometry.getTextFadeLevel());
+        if (!indicatorChanged && !textChanged) {
+            // 标志条的像素位置、颜色和文字渐变都没有变化，不需要重绘
+            return;
+        }
+        // 只刷新新旧标志条合并后的区域，多出1px用于抗锯齿的边缘
+        final int height = getHeight();
+        mIndicatorDirtyRect.set(Math.min(oldLeft, newLeft) - 1,
+                (int) (height - mSelectedIndicatorThickness) - 1,
+                Math.max(oldRight, newRight) + 1, height);
+        if (textChanged) {
+            // 文字渐变涉及新旧位置上的当前tab和下一个tab
+            unionTabBounds(mIndicatorDirtyRect, oldPosition, height);
+            unionTabBounds(mIndicatorDirtyRect, mSelectedPosition, height);
+        }
+        invalidate(mIndicatorDirtyRect);
+    }
+
+    private void unionTabBounds(Rect rect, int position, int height) {
+        final int count = getTabCount();
+        if (position < count) {
+            int right = getTabRight(Math.min(position + 1, count - 1));
+            rect.union(getTabLeft(position), 0, right, height);
+        }
+    }
 
-            if (mHasBottomIndicator) {
+    /**
+     * @return 标志条View模式下显示选中颜色的tab，滑过一半时切换到下一个tab
+     */
+    private int getLayerTextPosition() {
+        return mGeometry.getTextFadeLevel() > SlidingTabGeometry.TEXT_FADE_STEPS / 2
+                ? mSelectedPosition + 1 : mSelectedPosition;
+    }
+
+    void onViewPagerSelected(int position) {
+        invalidate();
+    }
+
+    /**
+     * 在onDraw方法当中主要是对底部蓝色标志条进行绘制操作
+     */
+    @Override
+    protected void onDraw(Canvas canvas) {
+        final TabMetrics metrics = mMetrics;
+        final long drawStart = metrics != null ? System.nanoTime() : 0;
+        final int height = getHeight();
+
+        if (isShowingSkeleton()) {
+            drawSkeleton(canvas);
+        }
+
+        // Thick colored underline below the current selection
+        if (updateIndicatorBounds()) {
+            int color = mGeometry.getIndicatorColor();
+
+            if (mHasBottomIndicator && !isIndicatorLayerActive()) {
                 mSelectedIndicatorPaint.setColor(mBottomIndicatorColor == 0 ? color : mBottomIndicatorColor);
 
-                mRectF.set(left, height - mSelectedIndicatorThickness, right, height);
+                mRectF.set(mGeometry.getIndicatorLeft(), height - mSelectedIndicatorThickness,
+                        mGeometry.getIndicatorRight(), height);
                 canvas.drawRoundRect(mRectF, radius, radius, mSelectedIndicatorPaint);
             }
         }
 
+        if (mFlatTitles != null) {
+            drawFlatTitles(canvas);
+        }
+
         // Vertical separators between the titles
         if (mHasTitleDivider) {
-            int separatorTop = (height - dividerHeightPx) / 2;
-            for (int i = 0; i < childCount - 1; i++) {
-                View child = getChildAt(i);
-                mDividerPaint.setColor(tabColorizer.getDividerColor(i));
-                canvas.drawLine(child.getRight(), separatorTop, child.getRight(), separatorTop + dividerHeightPx,
-                        mDividerPaint);
-            }
+            drawDividers(canvas);
+        }
+
+        if (metrics != null) {
+            metrics.recordDraw(System.nanoTime() - drawStart);
         }
     }
 
+    private TabColorizer getTabColorizer() {
+        return mCustomTabColorizer != null ? mCustomTabColorizer : mDefaultTabColorizer;
+    }
+
     /**
-     * 获取文字底部滑动标志条的偏移量
+     * 根据当前选中位置和滑动偏移量计算标志条的左右边界和颜色
      *
-     * @param textView
-     * @return int
-     */
-    private int getIndicatorOffset(TextView textView) {
-        // 设置滑动条的偏移量为左边Padding的0.99倍
-        // 保证滑动条边界靠近文字的左侧或者右侧
-        int offset = 0;
-        if (mTitleTabHorizontalMatch) {
-            String text = textView.getText().toString();
-            int width = textView.getWidth();
-            float textLength = textView.getPaint().measureText(text);
-            offset = (int) ((width - textLength) / 2.0f - 1 * density);
-        } else {
-            offset = (int) (0.99f * textView.getPaddingLeft());
+     * @return false 如果当前没有可以绘制标志条的tab
+     */
+    private boolean updateIndicatorBounds() {
+        if (!mVirtualized && mGeometry.getTabCount() != getChildCount()) {
+            // tab已经增删但还没有重新布局
+            syncTabGeometry();
         }
-        return offset;
-    }
-
-    private void setTextColor(int position, int color) {
-        TextView textView = (TextView) getChildAt(position);
-        textView.setTextColor(color);
+        //positionOffset是当前页面滑动比例，如果页面向右翻动，这个值不断变大，最后在趋近1的情况后突变为0。
+        // 如果页面向左翻动，这个值不断变小，最后变为0。
+        return mGeometry.update(mSelectedPosition, mSelectionOffset, getTabColorizer(), getActiveBlendTable());
     }
 
     /**
-     * Set the alpha value of the {@code color} to be the given {@code alpha}
-     * value.
+     * 当前选中的tab和下一个tab的文字颜色根据滑动偏移量在默认色和标志条颜色之间渐变。
+     * 渐变通过tab硬件层画笔上缓存的ColorFilter实现，不调用TextView的任何setter，也不需要重绘strip
      */
-    private static int setColorAlpha(int color, byte alpha) {
-        return Color.argb(alpha, Color.red(color), Color.green(color), Color.blue(color));
+    private void updateTextFade() {
+        TextView selectedView = null;
+        TextView nextView = null;
+        int selectedPosition = mSelectedPosition;
+        int selectedLevel = 0;
+        int nextLevel = 0;
+        final int count = getTabCount();
+        if (!isFlattened() && mSelectedPosition < count) {
+            if (mIndicatorLayer != null && isIndicatorLayerActive()) {
+                selectedPosition = getLayerTextPosition();
+                if (selectedPosition < count) {
+                    selectedView = findTabTitleView(selectedPosition);
+                    selectedLevel = SlidingTabGeometry.TEXT_FADE_STEPS;
+                }
+            } else {
+                final int textFadeLevel = mGeometry.getTextFadeLevel();
+                selectedView = findTabTitleView(mSelectedPosition);
+                selectedLevel = SlidingTabGeometry.TEXT_FADE_STEPS - textFadeLevel;
+                if (textFadeLevel > 0 && mSelectedPosition + 1 < count) {
+                    nextView = findTabTitleView(mSelectedPosition + 1);
+                    nextLevel = textFadeLevel;
+                }
+            }
+        }
+        if (selectedLevel <= 0) {
+            selectedView = null;
+        }
+        if (nextLevel <= 0) {
+            nextView = null;
+        }
+        // 先释放不再渐变的tab，空出的层画笔给新的tab使用
+        for (int i = 0; i < mTextFadeViews.length; i++) {
+            final View view = mTextFadeViews[i];
+            if (view != null && view != selectedView && view != nextView) {
+                releaseTextFadeSlot(i);
+            }
+        }
+        if (selectedView != null) {
+            setTextFade(selectedView, selectedPosition, selectedLevel);
+        }
+        if (nextView != null) {
+            setTextFade(nextView, mSelectedPosition + 1, nextLevel);
+        }
+    }
+
+    private TextView findTabTitleView(int position) {
+        final View tabView = getTabView(position);
+        return tabView != null ? findTitleView(tabView) : null;
+    }
+
+    private void setTextFade(TextView titleView, int position, int fadeLevel) {
+        final ColorBlendTable blendTable = getActiveBlendTable();
+        final int color = blendTable != null
+                ? blendTable.getTextColor(position, fadeLevel, SlidingTabGeometry.TEXT_FADE_STEPS)
+                : SlidingTabGeometry.computeTextColor(getTabColorizer().getIndicatorColor(position),
+                        mDefaultTextColor, fadeLevel);
+        int slot = indexOfTextFade(titleView);
+        if (slot < 0) {
+            slot = indexOfTextFade(null);
+            mTextFadeViews[slot] = titleView;
+            mTextFadeColors[slot] = color;
+            if (drawsOnlyText(titleView)) {
+                final Paint paint = mTextFadePaints[slot];
+                paint.setColorFilter(getTextFadeFilter(color));
+                titleView.setLayerType(LAYER_TYPE_HARDWARE, paint);
+            } else {
+                mTextFadeRestoreColors[slot] = titleView.getTextColors();
+                titleView.setTextColor(color);
+            }
+        } else if (mTextFadeColors[slot] != color) {
+            mTextFadeColors[slot] = color;
+            if (mTextFadeRestoreColors[slot] == null) {
+                final Paint paint = mTextFadePaints[slot];
+                paint.setColorFilter(getTextFadeFilter(color));
+                // 硬件层只更新合成时的画笔，不重新录制标题
+                titleView.setLayerPaint(paint);
+            } else {
+                titleView.setTextColor(color);
+            }
+        }
     }
 
     /**
-     * Blend {@code color1} and {@code color2} using the given ratio.
-     *
-     * @param ratio
-     *            of which to blend. 1.0 will return {@code color1}, 0.5 will
-     *            give an even blend, 0.0 will return {@code color2}.
+     * 层的ColorFilter使用SRC_IN，只有没有背景和图标的标题才能用它改变文字颜色而不染上其他内容
      */
-    private static int blendColors(int color1, int color2, float ratio) {
-        final float inverseRation = 1f - ratio;
-        float r = (Color.red(color1) * ratio) + (Color.red(color2) * inverseRation);
-        float g = (Color.green(color1) * ratio) + (Color.green(color2) * inverseRation);
-        float b = (Color.blue(color1) * ratio) + (Color.blue(color2) * inverseRation);
-        return Color.rgb((int) r, (int) g, (int) b);
+    private static boolean drawsOnlyText(TextView titleView) {
+        if (titleView.getBackground() != null) {
+            return false;
+        }
+        for (Drawable drawable : titleView.getCompoundDrawables()) {
+            if (drawable != null) {
+                return false;
+            }
+        }
+        return true;
     }
 
-    private static class SimpleTabColorizer implements SlidingTabLayout.TabColorizer {
-        private int[] mIndicatorColors;
-        private int[] mDividerColors;
+    private int indexOfTextFade(View titleView) {
+        for (int i = 0; i < mTextFadeViews.length; i++) {
+            if (mTextFadeViews[i] == titleView) {
+                return i;
+            }
+        }
+        return -1;
+    }
 
-        @Override
-        public final int getIndicatorColor(int position) {
-            return mIndicatorColors[position % mIndicatorColors.length];
+    /**
+     * 移除、回收或重新绑定的tab不再渐变，恢复为普通的绘制
+     */
+    private void releaseTextFade(View tabView) {
+        final TextView titleView = findTitleView(tabView);
+        if (titleView != null) {
+            final int slot = indexOfTextFade(titleView);
+            if (slot >= 0) {
+                releaseTextFadeSlot(slot);
+            }
         }
+    }
 
-        @Override
-        public final int getDividerColor(int position) {
-            return mDividerColors[position % mDividerColors.length];
+    private void releaseTextFadeSlot(int slot) {
+        final TextView titleView = mTextFadeViews[slot];
+        if (titleView == null) {
+            return;
         }
+        mTextFadeViews[slot] = null;
+        final ColorStateList restoreColors = mTextFadeRestoreColors[slot];
+        if (restoreColors == null) {
+            titleView.setLayerType(LAYER_TYPE_NONE, null);
+        } else {
+            mTextFadeRestoreColors[slot] = null;
+            titleView.setTextColor(restoreColors);
+        }
+    }
 
-        void setIndicatorColors(int... colors) {
-            mIndicatorColors = colors;
+    private ColorFilter getTextFadeFilter(int color) {
+        ColorFilter filter = mTextFadeFilters.get(color);
+        if (filter == null) {
+            if (mTextFadeFilters.size() >= MAX_CACHED_TEXT_FILTERS) {
+                mTextFadeFilters.clear();
+            }
+            filter = new PorterDuffColorFilter(color, PorterDuff.Mode.SRC_IN);
+            mTextFadeFilters.put(color, filter);
         }
+        return filter;
+    }
+
+    /**
+     * 标志条的几何信息需要在下一次布局或绘制前重新计算，在padding、标志条宽度或标题变化时调用
+     */
+    void invalidateIndicatorGeometry() {
+        mGeometry.invalidateIndicatorBounds();
+        invalidate();
+    }
 
-        void setDividerColors(int... colors) {
-            mDividerColors = colors;
+    /**
+     * 复用的tab重新绑定时需要恢复默认的文字颜色
+     */
+    private void applyTabTextColor(View tabView) {
+        releaseTextFade(tabView);
+        if (tabView instanceof TextView) {
+            ((TextView) tabView).setTextColor(mDefaultTextColor);
         }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,181 @@
+package com.github.achenglike.library;
+
+import android.content.Context;
+import android.content.res.Configuration;
+import android.content.res.Resources;
+import android.content.res.TypedArray;
+import android.os.Build;
+import android.util.AttributeSet;
+import android.util.DisplayMetrics;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+/**
+ * The resolved {@code SlidingTab} attributes of a {@link SlidingTabLayout},
+ * shared by the layout and its {@link SlidingTabStrip}. Styles are immutable
+ * and cached per theme, which is held weakly, by their style resource,
+ * their inline attribute values and the configuration qualifiers that
+ * change resolved values, so inflating the same tab layout many times, for
+ * example in list rows, parses the attributes only once.
+ */
+final class SlidingTabStyle {
+
+    private static final int TAB_VIEW_HORIZONTAL_PADDING_DIPS = 10;
+    private static final int TAB_VIEW_TEXT_SIZE_SP = 14;
+    private static final float DEAULT_TAB_HEIGHT = 57;
+    private static final int DEFAULT_TEXT_COLOR = 0xFF000000;
+    private static final float SELECTED_INDICATOR_THICKNESS_DIPS = 1.5f;
+    private static final int DEFAULT_DIVIDER_THICKNESS_DIPS = 1;
+    private static final int DEFAULT_INDICATOR_WIDTH_DIPS = 16;
+    private static final int DEFAULT_INDICATOR_MOTION = 1;
+
+    private static final int MAX_CACHED_STYLES = 32;
+
+    /**
+     * 样式和主题中的属性可能引用?attr，同样的样式在不同主题下解析出的值不同，所以按主题分别缓存。
+     * 主题只被弱引用，Activity销毁后它的缓存随主题一起回收
+     */
+    private static final Map<Resources.Theme, Map<String, SlidingTabStyle>> sStyles = new WeakHashMap<>();
+
+    final float titleTextSize;
+    final boolean titleTabHorizontalMatch;
+    final float horizontalPadding;
+    final int defaultTextColor;
+    final float tabHeight;
+    final int bottomIndicatorColor;
+    final int selectedTextColor;
+    final float leftPadding;
+    final float rightPadding;
+    final boolean virtualizedTabs;
+    final boolean lazyTitles;
+    final boolean flattenedTabs;
+    final boolean deferredTabs;
+    final boolean hasBottomIndicator;
+    final float indicatorThickness;
+    final int indicatorWidth;
+    final boolean hasTitleDivider;
+    final float dividerThickness;
+    final int indicatorMotion;
+    final boolean indicatorMatchTextWidth;
+
+    private SlidingTabStyle(Context context, AttributeSet attrs) {
+        final DisplayMetrics metrics = context.getResources().getDisplayMetrics();
+        final float density = metrics.density;
+        TypedArray styled = context.obtainStyledAttributes(attrs, R.styleable.SlidingTab, 0, 0);
+        titleTextSize = styled.getDimensionPixelSize(R.styleable.SlidingTab_title_text_size,
+                (int) (TAB_VIEW_TEXT_SIZE_SP * metrics.scaledDensity + 0.5f));
+        titleTabHorizontalMatch = styled.getBoolean(R.styleable.SlidingTab_title_tab_horizontal_match, true);
+        horizontalPadding = styled.getDimension(R.styleable.SlidingTab_title_tab_horzontal_padding,
+                TAB_VIEW_HORIZONTAL_PADDING_DIPS * density);
+        defaultTextColor = styled.getColor(R.styleable.SlidingTab_title_text_default_color, DEFAULT_TEXT_COLOR);
+        tabHeight = styled.getDimension(R.styleable.SlidingTab_tab_height, DEAULT_TAB_HEIGHT * density);
+        bottomIndicatorColor = styled.getColor(R.styleable.SlidingTab_bottom_indicator_color, 0);
+        selectedTextColor = styled.getColor(R.styleable.SlidingTab_selected_text_color, DEFAULT_TEXT_COLOR);
+        leftPadding = styled.getDimension(R.styleable.SlidingTab_left_padding, 0);
+        rightPadding = styled.getDimension(R.styleable.SlidingTab_right_padding, 0);
+        virtualizedTabs = styled.getBoolean(R.styleable.SlidingTab_virtualized_tabs, false);
+        lazyTitles = styled.getBoolean(R.styleable.SlidingTab_lazy_titles, false);
+        flattenedTabs = styled.getBoolean(R.styleable.SlidingTab_flattened_tabs, false);
+        deferredTabs = styled.getBoolean(R.styleable.SlidingTab_deferred_tabs, false);
+        hasBottomIndicator = styled.getBoolean(R.styleable.SlidingTab_has_bottom_indicator, true);
+        indicatorThickness = styled.getDimension(R.styleable.SlidingTab_indicator_thickness,
+                SELECTED_INDICATOR_THICKNESS_DIPS * density);
+        indicatorWidth = styled.getDimensionPixelSize(R.styleable.SlidingTab_indicator_width,
+                (int) (DEFAULT_INDICATOR_WIDTH_DIPS * density + .5f));
+        hasTitleDivider = styled.getBoolean(R.styleable.SlidingTab_has_title_divider, false);
+        dividerThickness = styled.getDimension(R.styleable.SlidingTab_divider_thickness,
+                DEFAULT_DIVIDER_THICKNESS_DIPS * density);
+        indicatorMotion = styled.getInt(R.styleable.SlidingTab_indicator_motion, DEFAULT_INDICATOR_MOTION);
+        indicatorMatchTextWidth = styled.getBoolean(R.styleable.SlidingTab_indicator_match_text_width, false);
+        styled.recycle();
+    }
+
+    /**
+     * @return the style for {@code attrs}, parsed only if an equal attribute
+     *         set was not resolved under the same configuration before.
+     */
+    static SlidingTabStyle obtain(Context context, AttributeSet attrs) {
+        final String key = buildKey(context, attrs);
+        if (key == null) {
+            // 引用了主题属性，结果与主题相关，不缓存
+            return new SlidingTabStyle(context, attrs);
+        }
+        final Resources.Theme theme = context.getTheme();
+        synchronized (sStyles) {
+            Map<String, SlidingTabStyle> styles = sStyles.get(theme);
+            if (styles == null) {
+                styles = new LinkedHashMap<String, SlidingTabStyle>(16, 0.75f, true) {
+                    @Override
+                    protected boolean removeEldestEntry(Map.Entry<String, SlidingTabStyle> eldest) {
+                        return size() > MAX_CACHED_STYLES;
+                    }
+                };
+                sStyles.put(theme, styles);
+            }
+            SlidingTabStyle style = styles.get(key);
+            if (style == null) {
+                style = new SlidingTabStyle(context, attrs);
+                styles.put(key, style);
+            }
+            return style;
+        }
+    }
+
+    /**
+     * @return a key made of the configuration qualifiers, the style resource
+     *         and the raw values of the inline {@code SlidingTab} attributes,
+     *         or {@code null} if an attribute refers to a theme attribute.
+     *         The theme is not part of the key; styles are cached per theme.
+     */
+    private static String buildKey(Context context, AttributeSet attrs) {
+        final DisplayMetrics metrics = context.getResources().getDisplayMetrics();
+        final Configuration config = context.getResources().getConfiguration();
+        StringBuilder key = new StringBuilder(64)
+                .append(metrics.densityDpi).append('|')
+                .append(metrics.scaledDensity).append('|')
+                .append(config.uiMode).append('|')
+                .append(config.orientation).append('|')
+                .append(config.smallestScreenWidthDp).append('|')
+                .append(config.screenWidthDp).append('|')
+                .append(config.screenHeightDp).append('|')
+                // 包含屏幕尺寸、长宽比和布局方向限定符
+                .append(config.screenLayout).append('|')
+                .append(getLocaleKey(config));
+        if (attrs == null) {
+            return key.toString();
+        }
+        key.append('|').append(attrs.getStyleAttribute());
+        final int count = attrs.getAttributeCount();
+        for (int i = 0; i < count; i++) {
+            final int nameResource = attrs.getAttributeNameResource(i);
+            if (!isSlidingTabAttribute(nameResource)) {
+                continue;
+            }
+            final String value = attrs.getAttributeValue(i);
+            if (value != null && value.startsWith("?")) {
+                return null;
+            }
+            key.append('|').append(nameResource).append('=').append(value);
+        }
+        return key.toString();
+    }
+
+    @SuppressWarnings("deprecation")
+    private static String getLocaleKey(Configuration config) {
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.N) {
+            return config.getLocales().toLanguageTags();
+        }
+        return String.valueOf(config.locale);
+    }
+
+    private static boolean isSlidingTabAttribute(int nameResource) {
+        for (int attr : R.styleable.SlidingTab) {
+            if (attr == nameResource) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,64 @@
+package com.github.achenglike.library;
+
+import android.text.Layout;
+import android.text.TextPaint;
+
+/**
+ * Measures tab titles off the main thread. The widths are used directly as
+ * the natural widths of virtual tabs and are seeded into the title width
+ * cache of the strip for tab views, so the main thread does not measure
+ * the same titles again. Measuring also shapes the text, which warms the
+ * text layout cache the tab {@code TextView}s hit when they build their
+ * layouts.
+ */
+final class TabTitlePrecomputer implements Runnable {
+
+    interface Callback {
+        /**
+         * Called once the titles are measured, on the thread that ran the
+         * task.
+         */
+        void onTitlesPrecomputed(TabTitlePrecomputer result);
+    }
+
+    final int generation;
+    final CharSequence[] titles;
+    /**
+     * 每个标题文字的宽度，run()执行完后有效
+     */
+    final int[] titleWidths;
+
+    private final TextPaint mPaint;
+    private final Callback mCallback;
+
+    /**
+     * @param paint a paint owned by this task, configured with the title
+     *              text size and typeface
+     */
+    TabTitlePrecomputer(int generation, CharSequence[] titles, TextPaint paint, Callback callback) {
+        this.generation = generation;
+        this.titles = titles;
+        this.titleWidths = new int[titles.length];
+        mPaint = paint;
+        mCallback = callback;
+    }
+
+    /**
+     * @return the paint the titles were measured with
+     */
+    TextPaint getPaint() {
+        return mPaint;
+    }
+
+    @Override
+    public void run() {
+        for (int i = 0; i < titles.length; i++) {
+            CharSequence title = titles[i];
+            if (title == null || title.length() == 0) {
+                continue;
+            }
+            titleWidths[i] = (int) Math.ceil(Layout.getDesiredWidth(title, mPaint));
+        }
+        mCallback.onTitlesPrecomputed(this);
+    }
+}
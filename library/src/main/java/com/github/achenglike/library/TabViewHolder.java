@@ -0,0 +1,89 @@
+package com.github.achenglike.library;
+
+import android.view.View;
+import android.widget.TextView;
+
+/**
+ * Stored as a tag on every tab view. Remembers the layout the view was
+ * inflated from, so that it goes back to the right pool, and its title
+ * view, so that binding a title needs no {@code findViewById}.
+ */
+final class TabViewHolder {
+
+    final View itemView;
+    final int layoutResId;
+    final TextView titleView;
+    /**
+     * 由SlidingTabLayout创建、未被子类修改的TextView，自然宽度就是文字宽度加padding，不需要measure
+     */
+    final boolean plainText;
+
+    private final int mInitialPaddingLeft;
+    private final int mInitialPaddingTop;
+    private final int mInitialPaddingRight;
+    private final int mInitialPaddingBottom;
+
+    private TabViewHolder(View itemView, int layoutResId, int titleViewId, boolean plainText) {
+        this.itemView = itemView;
+        this.layoutResId = layoutResId;
+        this.plainText = plainText;
+        TextView title = null;
+        if (titleViewId != 0) {
+            View view = itemView.findViewById(titleViewId);
+            if (view instanceof TextView) {
+                title = (TextView) view;
+            }
+        }
+        if (title == null && itemView instanceof TextView) {
+            title = (TextView) itemView;
+        }
+        titleView = title;
+        mInitialPaddingLeft = itemView.getPaddingLeft();
+        mInitialPaddingTop = itemView.getPaddingTop();
+        mInitialPaddingRight = itemView.getPaddingRight();
+        mInitialPaddingBottom = itemView.getPaddingBottom();
+    }
+
+    /**
+     * Creates the holder of a freshly created tab view and stores it as tag.
+     */
+    static TabViewHolder attach(View itemView, int layoutResId, int titleViewId) {
+        return attach(new TabViewHolder(itemView, layoutResId, titleViewId, false));
+    }
+
+    /**
+     * Creates the holder of a default tab view.
+     *
+     * @param plainText whether the view is a plain {@link TextView} whose
+     *                  width is its text width plus its padding
+     */
+    static TabViewHolder attachDefault(View itemView, boolean plainText) {
+        return attach(new TabViewHolder(itemView, 0, 0, plainText && itemView.getClass() == TextView.class));
+    }
+
+    private static TabViewHolder attach(TabViewHolder holder) {
+        holder.itemView.setTag(R.id.sliding_tab_view_holder, holder);
+        return holder;
+    }
+
+    /**
+     * @return whether {@code itemView} is a plain default tab, see
+     *         {@link #attachDefault(View, boolean)}
+     */
+    static boolean isPlainText(View itemView) {
+        TabViewHolder holder = get(itemView);
+        return holder != null && holder.plainText;
+    }
+
+    static TabViewHolder get(View itemView) {
+        Object tag = itemView.getTag(R.id.sliding_tab_view_holder);
+        return tag instanceof TabViewHolder ? (TabViewHolder) tag : null;
+    }
+
+    /**
+     * 复用的View可能之前是第一个或最后一个tab，带有额外的padding
+     */
+    void restoreInitialPadding() {
+        itemView.setPadding(mInitialPaddingLeft, mInitialPaddingTop, mInitialPaddingRight, mInitialPaddingBottom);
+    }
+}
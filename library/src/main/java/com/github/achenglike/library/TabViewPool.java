@@ -0,0 +1,114 @@
+package com.github.achenglike.library;
+
+import android.content.Context;
+import android.support.v4.view.AsyncLayoutInflater;
+import android.util.SparseArray;
+import android.view.View;
+import android.view.ViewGroup;
+import android.widget.LinearLayout;
+
+import java.util.ArrayList;
+
+/**
+ * Pool of custom tab views keyed by their layout resource. A pool can be
+ * shared by several {@link SlidingTabLayout}s of the same screen with
+ * {@link SlidingTabLayout#setTabViewPool(TabViewPool)}, and filled ahead of
+ * time on a background thread with {@link #prefetch(Context, int, int, int)}.
+ *
+ * <p>Pooled views keep the context they were inflated with and are only
+ * handed out to layouts with the same context, so do not share a pool
+ * between activities. All methods must be called on the main thread.
+ */
+public class TabViewPool {
+
+    private static final int DEFAULT_MAX_VIEWS_PER_LAYOUT = 32;
+
+    private final int mMaxViewsPerLayout;
+    private final SparseArray<ArrayList<View>> mViews = new SparseArray<>();
+
+    public TabViewPool() {
+        this(DEFAULT_MAX_VIEWS_PER_LAYOUT);
+    }
+
+    /**
+     * @param maxViewsPerLayout how many idle views are kept per layout
+     *                          resource, extra released views are dropped
+     */
+    public TabViewPool(int maxViewsPerLayout) {
+        mMaxViewsPerLayout = maxViewsPerLayout;
+    }
+
+    /**
+     * Inflates {@code count} tab views of {@code layoutResId} on a background
+     * thread and adds them to the pool once they are ready.
+     *
+     * @param titleViewId the id of the title {@code TextView} inside the
+     *                    layout, as passed to
+     *                    {@link SlidingTabLayout#setCustomTabView(int, int)}
+     */
+    public void prefetch(Context context, final int layoutResId, final int titleViewId, int count) {
+        if (layoutResId == 0 || count <= 0) {
+            return;
+        }
+        final AsyncLayoutInflater inflater = new AsyncLayoutInflater(context);
+        // 只用于生成tab所需的LinearLayout.LayoutParams，View不会被添加进去
+        final ViewGroup parent = new LinearLayout(context);
+        final AsyncLayoutInflater.OnInflateFinishedListener listener = new AsyncLayoutInflater.OnInflateFinishedListener() {
+            @Override
+            public void onInflateFinished(View view, int resid, ViewGroup parent) {
+                TabViewHolder.attach(view, layoutResId, titleViewId);
+                release(view);
+            }
+        };
+        for (int i = 0; i < count; i++) {
+            inflater.inflate(layoutResId, parent, listener);
+        }
+    }
+
+    /**
+     * @return the number of idle views of {@code layoutResId} in the pool
+     */
+    public int getPooledCount(int layoutResId) {
+        ArrayList<View> views = mViews.get(layoutResId);
+        return views == null ? 0 : views.size();
+    }
+
+    public void clear() {
+        mViews.clear();
+    }
+
+    /**
+     * @return an idle view of {@code layoutResId} inflated with
+     *         {@code context}, or {@code null}
+     */
+    View acquire(Context context, int layoutResId) {
+        ArrayList<View> views = mViews.get(layoutResId);
+        if (views == null) {
+            return null;
+        }
+        for (int i = views.size() - 1; i >= 0; i--) {
+            if (views.get(i).getContext() == context) {
+                return views.remove(i);
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Puts a tab view that is no longer attached back into the pool.
+     */
+    void release(View tabView) {
+        TabViewHolder holder = TabViewHolder.get(tabView);
+        if (holder == null || tabView.getParent() != null) {
+            return;
+        }
+        ArrayList<View> views = mViews.get(holder.layoutResId);
+        if (views == null) {
+            views = new ArrayList<>();
+            mViews.put(holder.layoutResId, views);
+        }
+        if (views.size() < mMaxViewsPerLayout && !views.contains(tabView)) {
+            views.add(tabView);
+        }
+    }
+}
@@ -0,0 +1,91 @@
+package com.github.achenglike.library;
+
+import android.graphics.Typeface;
+import android.text.Layout;
+import android.text.Spanned;
+import android.text.TextPaint;
+import android.widget.TextView;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Measured widths of tab titles, keyed by the title text. All entries were
+ * measured with the same text size and typeface; when a title is measured
+ * with a different style the cache is cleared first. Titles with spans are
+ * measured every time, because their spans can change the width of the
+ * same text.
+ */
+class TitleWidthCache {
+
+    private static final int MAX_ENTRIES = 512;
+
+    private final Map<String, Integer> mWidths = new LinkedHashMap<String, Integer>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Integer> eldest) {
+            return size() > MAX_ENTRIES;
+        }
+    };
+
+    private float mTextSize = -1;
+    private Typeface mTypeface;
+
+    /**
+     * @return the width of the text of {@code titleView} in pixels, measured
+     *         only if this text was not seen with the current style before.
+     */
+    int getWidth(TextView titleView) {
+        return getWidth(titleView.getPaint(), titleView.getText());
+    }
+
+    /**
+     * @return the width of {@code text} drawn with {@code paint}, measured
+     *         only if this text was not seen with the same style before.
+     */
+    int getWidth(TextPaint paint, CharSequence text) {
+        updateStyle(paint);
+        if (text == null || text.length() == 0) {
+            return 0;
+        }
+        if (text instanceof Spanned) {
+            // 相同的文字带不同的字号或样式span时宽度不同，不能按文字缓存
+            return (int) Math.ceil(Layout.getDesiredWidth(text, paint));
+        }
+        final String key = text.toString();
+        Integer width = mWidths.get(key);
+        if (width == null) {
+            width = (int) Math.ceil(Layout.getDesiredWidth(text, paint));
+            mWidths.put(key, width);
+        }
+        return width;
+    }
+
+    /**
+     * Stores a width measured elsewhere, for example on a background thread,
+     * for the text of {@code titleView}. Ignored if {@code measuredWith} has
+     * a different style than the paint of {@code titleView}.
+     */
+    void putWidth(TextView titleView, TextPaint measuredWith, int width) {
+        final TextPaint paint = titleView.getPaint();
+        final CharSequence text = titleView.getText();
+        if (paint.getTextSize() != measuredWith.getTextSize() || paint.getTypeface() != measuredWith.getTypeface()
+                || text == null || text.length() == 0 || text instanceof Spanned) {
+            return;
+        }
+        updateStyle(paint);
+        mWidths.put(text.toString(), width);
+    }
+
+    private void updateStyle(TextPaint paint) {
+        if (paint.getTextSize() != mTextSize || paint.getTypeface() != mTypeface) {
+            // 字体或字号变化后之前的测量结果全部失效
+            mWidths.clear();
+            mTextSize = paint.getTextSize();
+            mTypeface = paint.getTypeface();
+        }
+    }
+
+    void clear() {
+        mWidths.clear();
+    }
+}
@@ -0,0 +1,503 @@
+package com.github.achenglike.library;
+
+import android.app.Activity;
+import android.content.Context;
+import android.graphics.Canvas;
+import android.graphics.Paint;
+import android.graphics.Rect;
+import android.graphics.RectF;
+import android.support.v4.view.PagerAdapter;
+import android.support.v4.view.ViewPager;
+import android.view.View;
+import android.view.ViewGroup;
+import android.view.ViewTreeObserver;
+import android.widget.FrameLayout;
+import android.widget.TextView;
+
+import com.github.achenglike.core.TabMetrics;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.Robolectric;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+import org.robolectric.shadows.ShadowLooper;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeTrue;
+
+/**
+ * Replays scripted pager scroll sequences and fails when the hot path
+ * exceeds its budget of views, layouts, invalidations, scrollTo calls or
+ * allocations.
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 27)
+public class SlidingTabLayoutPerformanceTest {
+
+    private static final int WIDTH = 1080;
+    private static final int HEIGHT = 150;
+    private static final int FIXED_TAB_WIDTH = 200;
+
+    /**
+     * 每帧最多一次strip的invalidate和一次scrollTo，滑动过程中不允许requestLayout。
+     * 虚拟化模式下可见窗口变化的那一帧允许额外一次invalidate
+     */
+    private static final int MAX_INVALIDATIONS_PER_FRAME = 1;
+    private static final int MAX_VIRTUAL_INVALIDATIONS_PER_FRAME = 2;
+    private static final int MAX_SCROLL_TO_PER_FRAME = 1;
+    /**
+     * 每次onDraw平均允许的分配字节数。只测量strip自己的onDraw，画布的方法都被CountingCanvas覆盖，
+     * 不经过View.draw和Robolectric的shadow，所以不需要为框架留余量。按整数平均，
+     * 500次绘制里JIT或线程计数器本身偶尔的几次小分配不会超出，每次绘制新建任何对象都会超出
+     */
+    private static final long MAX_BYTES_PER_DRAW = 0;
+
+    private Activity activity;
+    private SlidingTabLayout tabLayout;
+    private RecordingViewPager viewPager;
+    private TabMetrics metrics;
+    private int layoutPasses;
+
+    @Before
+    public void setUp() {
+        activity = Robolectric.setupActivity(Activity.class);
+        tabLayout = new SlidingTabLayout(activity, null);
+        viewPager = new RecordingViewPager(activity);
+        metrics = new TabMetrics();
+        tabLayout.setMetrics(metrics);
+    }
+
+    @Test
+    public void populateCreatesOneViewPerTab() {
+        attach(20);
+
+        assertEquals(20, tabStrip().getChildCount());
+        assertEquals(20, metrics.snapshot().tabViewsInflated);
+    }
+
+    @Test
+    public void rebindWithEqualTitlesDoesNotRequestLayout() {
+        // 默认的wrap_content tab，标题相同时不能调用setText，否则每个tab都会请求重新布局
+        attach(20);
+        final CharSequence firstTitle = ((TextView) tabStrip().getChildAt(0)).getText();
+        SlidingTabLayout.BindState state = new SlidingTabLayout.BindState();
+        tabLayout.unbind(state);
+        final int startLayoutPasses = layoutPasses;
+
+        RecordingViewPager otherPager = new RecordingViewPager(activity);
+        otherPager.setAdapter(new TitleAdapter(20));
+        tabLayout.bind(otherPager, state);
+        runFrame();
+
+        assertSame(firstTitle, ((TextView) tabStrip().getChildAt(0)).getText());
+        assertEquals(startLayoutPasses, layoutPasses);
+    }
+
+    @Test
+    public void virtualizedPopulateOnlyCreatesVisibleWindow() {
+        tabLayout.setVirtualizedTabs(true);
+        attach(500);
+
+        // 只创建可见区域内的tab和两侧各VIRTUAL_WINDOW_MARGIN_TABS个tab，与标题的实际宽度无关
+        int visibleTabs = tabStrip().findTabAt(WIDTH) + 1;
+        int childCount = tabStrip().getChildCount();
+        assertEquals(visibleTabs + SlidingTabLayout.VIRTUAL_WINDOW_MARGIN_TABS, childCount);
+        assertTrue("children: " + childCount, childCount < 500);
+        assertTrue(metrics.snapshot().tabViewsInflated <= childCount);
+    }
+
+    @Test
+    public void flattenedPopulateCreatesNoViews() {
+        tabLayout.setFlattenedTabs(true);
+        attach(50);
+
+        assertEquals(0, tabStrip().getChildCount());
+        assertEquals(0, metrics.snapshot().tabViewsInflated);
+    }
+
+    @Test
+    public void deferredTabsAreCreatedOnFirstMeasure() {
+        tabLayout.setDeferredTabs(true);
+        viewPager.setAdapter(new TitleAdapter(10));
+        tabLayout.setViewPager(viewPager);
+        assertEquals(0, tabStrip().getChildCount());
+        assertEquals(0, metrics.snapshot().populateNanos.getCount());
+
+        attach(10);
+        assertEquals(10, tabStrip().getChildCount());
+        assertEquals(1, metrics.snapshot().populateNanos.getCount());
+    }
+
+    @Test
+    public void swipeStaysWithinFrameBudget() {
+        attach(10);
+        assertSwipeWithinBudget(MAX_INVALIDATIONS_PER_FRAME);
+    }
+
+    @Test
+    public void virtualizedSwipeStaysWithinFrameBudget() {
+        tabLayout.setVirtualizedTabs(true);
+        attach(200);
+        assertSwipeWithinBudget(MAX_VIRTUAL_INVALIDATIONS_PER_FRAME);
+    }
+
+    @Test
+    public void flattenedSwipeStaysWithinFrameBudget() {
+        tabLayout.setFlattenedTabs(true);
+        attach(10);
+        assertSwipeWithinBudget(MAX_INVALIDATIONS_PER_FRAME);
+    }
+
+    @Test
+    public void scrollEventsAreCoalescedPerFrame() {
+        attach(10);
+        metrics.reset();
+
+        for (int frame = 1; frame <= 10; frame++) {
+            long appliedBefore = metrics.snapshot().scrollEventsApplied;
+            // 每帧的第一个事件立即应用，不等待下一个vsync
+            viewPager.dispatchPageScrolled(0, frame * 4 / 50f);
+            assertEquals(appliedBefore + 1, metrics.snapshot().scrollEventsApplied);
+            for (int event = 1; event < 4; event++) {
+                viewPager.dispatchPageScrolled(0, (frame * 4 + event) / 50f);
+            }
+            assertEquals(appliedBefore + 1, metrics.snapshot().scrollEventsApplied);
+            runFrame();
+        }
+
+        // 同一帧内其余的事件只在帧回调中应用最后一次
+        TabMetrics.Snapshot snapshot = metrics.snapshot();
+        assertEquals(40, snapshot.scrollEventsReceived);
+        assertEquals(20, snapshot.scrollEventsApplied);
+    }
+
+    @Test
+    public void rebindReusesTabViewsAndRestoresScroll() {
+        // Robolectric的文字宽度只有几个像素，固定tab宽度保证内容比视口宽，scrollTo不会被截断为0
+        tabLayout = new FixedWidthTabLayout(activity);
+        tabLayout.setMetrics(metrics);
+        attach(20);
+        final View firstTab = tabStrip().getChildAt(0);
+        tabLayout.scrollTo(300, 0);
+        SlidingTabLayout.BindState state = new SlidingTabLayout.BindState();
+        tabLayout.unbind(state);
+        metrics.reset();
+        final int startLayoutPasses = layoutPasses;
+
+        RecordingViewPager otherPager = new RecordingViewPager(activity);
+        otherPager.setAdapter(new TitleAdapter(20));
+        tabLayout.bind(otherPager, state);
+        runFrame();
+
+        assertEquals(0, metrics.snapshot().tabViewsInflated);
+        assertEquals(firstTab, tabStrip().getChildAt(0));
+        assertEquals(300, tabLayout.getScrollX());
+        assertEquals(startLayoutPasses, layoutPasses);
+
+        // 数量变化时只在末尾增删tab
+        RecordingViewPager shorterPager = new RecordingViewPager(activity);
+        shorterPager.setAdapter(new TitleAdapter(12));
+        tabLayout.unbind(state);
+        tabLayout.bind(shorterPager, state);
+        assertEquals(12, tabStrip().getChildCount());
+        assertEquals(firstTab, tabStrip().getChildAt(0));
+        assertEquals(0, metrics.snapshot().tabViewsInflated);
+    }
+
+    @Test
+    public void tabTitleUpdatesAreAppliedOncePerFrame() {
+        attach(10);
+        final TextView tab = (TextView) tabStrip().getChildAt(1);
+
+        tabLayout.setTabTitle(1, "Tab X");
+        tabLayout.setTabTitle(1, "Tab 9");
+        assertEquals("Tab 1", tab.getText().toString());
+        runFrame();
+
+        // 同一帧只应用最后一次的标题，宽度不变时strip不需要重新布局
+        assertEquals("Tab 9", tab.getText().toString());
+        assertFalse(tabStrip().isLayoutRequested());
+
+        tabLayout.setTabTitle(1, "A much longer title");
+        runFrame();
+        assertTrue(tabStrip().isLayoutRequested());
+    }
+
+    @Test
+    public void onDrawDoesNotAllocate() {
+        assumeTrue(allocatedBytes() >= 0);
+        attach(10);
+        final SlidingTabStrip strip = tabStrip();
+        final Canvas canvas = new CountingCanvas();
+
+        // 预热：填充颜色和ColorFilter缓存以及渐变tab的层
+        for (int i = 0; i <= 100; i++) {
+            strip.onViewPagerPageChanged(i % 9, (i % 10) / 10f);
+            strip.onDraw(canvas);
+        }
+
+        // 直接调用onDraw，只统计strip自己的绘制代码；tab的绘制属于框架，不在预算之内。
+        // onViewPagerPageChanged中的invalidate会经过Robolectric的消息调度，不计入
+        final int draws = 500;
+        long allocated = 0;
+        for (int i = 0; i < draws; i++) {
+            strip.onViewPagerPageChanged(i % 9, (i % 10) / 10f);
+            long before = allocatedBytes();
+            strip.onDraw(canvas);
+            allocated += allocatedBytes() - before;
+        }
+        long bytesPerDraw = allocated / draws;
+        assertTrue("bytes per draw: " + bytesPerDraw, bytesPerDraw <= MAX_BYTES_PER_DRAW);
+    }
+
+    /**
+     * 从第0页拖到第3页。拖动时输入事件按vsync批量派发，真实的ViewPager每帧派发一次onPageScrolled；
+     * 同一帧内的多次事件由scrollEventsAreCoalescedPerFrame覆盖
+     */
+    private void assertSwipeWithinBudget(int maxInvalidationsPerFrame) {
+        metrics.reset();
+        final int startLayoutPasses = layoutPasses;
+        viewPager.dispatchPageScrollStateChanged(ViewPager.SCROLL_STATE_DRAGGING);
+
+        int frames = 0;
+        for (int page = 0; page < 3; page++) {
+            for (int step = 1; step < 30; step++) {
+                long invalidationsBefore = metrics.snapshot().invalidations;
+                viewPager.dispatchPageScrolled(page, step / 30f);
+                runFrame();
+                frames++;
+
+                long frameInvalidations = metrics.snapshot().invalidations - invalidationsBefore;
+                assertTrue("invalidations in frame " + frames + ": " + frameInvalidations,
+                        frameInvalidations <= maxInvalidationsPerFrame);
+            }
+            viewPager.dispatchPageSelected(page + 1);
+            viewPager.dispatchPageScrolled(page + 1, 0f);
+            runFrame();
+            frames++;
+        }
+        viewPager.dispatchPageScrollStateChanged(ViewPager.SCROLL_STATE_IDLE);
+
+        TabMetrics.Snapshot snapshot = metrics.snapshot();
+        assertEquals("layout passes during swipe", startLayoutPasses, layoutPasses);
+        assertTrue("scrollTo per frame: " + snapshot.scrollToCallsPerFrame,
+                snapshot.scrollToCallsPerFrame.getMax() <= MAX_SCROLL_TO_PER_FRAME);
+        assertTrue("scrollTo calls: " + snapshot.scrollToCalls, snapshot.scrollToCalls <= frames);
+        assertTrue("scroll frames: " + snapshot.scrollEventsApplied, snapshot.scrollEventsApplied <= frames);
+        // 每次onPageSelected允许额外一次整体刷新
+        assertTrue("invalidations: " + snapshot.invalidations,
+                snapshot.invalidations <= frames * maxInvalidationsPerFrame + 3);
+    }
+
+    private void attach(int tabCount) {
+        viewPager.setAdapter(new TitleAdapter(tabCount));
+        FrameLayout root = new FrameLayout(activity);
+        root.addView(tabLayout, new FrameLayout.LayoutParams(WIDTH, HEIGHT));
+        activity.setContentView(root, new ViewGroup.LayoutParams(WIDTH, HEIGHT));
+        tabLayout.setViewPager(viewPager);
+        tabLayout.getViewTreeObserver().addOnGlobalLayoutListener(new ViewTreeObserver.OnGlobalLayoutListener() {
+            @Override
+            public void onGlobalLayout() {
+                layoutPasses++;
+            }
+        });
+        tabLayout.measure(View.MeasureSpec.makeMeasureSpec(WIDTH, View.MeasureSpec.EXACTLY),
+                View.MeasureSpec.makeMeasureSpec(HEIGHT, View.MeasureSpec.EXACTLY));
+        tabLayout.layout(0, 0, WIDTH, HEIGHT);
+        runFrame();
+    }
+
+    private SlidingTabStrip tabStrip() {
+        return (SlidingTabStrip) tabLayout.getChildAt(0);
+    }
+
+    private static void runFrame() {
+        ShadowLooper.runUiThreadTasksIncludingDelayedTasks();
+    }
+
+    /**
+     * @return bytes allocated by the current thread, or -1 if the JVM does
+     *         not report it
+     */
+    private static long allocatedBytes() {
+        java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        if (!(bean instanceof com.sun.management.ThreadMXBean)) {
+            return -1;
+        }
+        com.sun.management.ThreadMXBean sunBean = (com.sun.management.ThreadMXBean) bean;
+        if (!sunBean.isThreadAllocatedMemorySupported() || !sunBean.isThreadAllocatedMemoryEnabled()) {
+            return -1;
+        }
+        return sunBean.getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+
+    private static class TitleAdapter extends PagerAdapter {
+        private final int mCount;
+
+        TitleAdapter(int count) {
+            mCount = count;
+        }
+
+        @Override
+        public int getCount() {
+            return mCount;
+        }
+
+        @Override
+        public CharSequence getPageTitle(int position) {
+            return "Tab " + position;
+        }
+
+        @Override
+        public boolean isViewFromObject(View view, Object object) {
+            return view == object;
+        }
+    }
+
+    /**
+     * Default tabs with a fixed width, independent of the text metrics of
+     * the test environment.
+     */
+    private static class FixedWidthTabLayout extends SlidingTabLayout {
+        FixedWidthTabLayout(Context context) {
+            super(context, null);
+        }
+
+        @Override
+        protected TextView createDefaultTabView(Context context) {
+            TextView textView = super.createDefaultTabView(context);
+            textView.getLayoutParams().width = FIXED_TAB_WIDTH;
+            return textView;
+        }
+    }
+
+    /**
+     * Lets the test drive the listeners that {@link SlidingTabLayout} adds
+     * to the pager, like a real drag would.
+     */
+    private static class RecordingViewPager extends ViewPager {
+        private final List<OnPageChangeListener> mListeners = new ArrayList<>();
+
+        RecordingViewPager(Context context) {
+            super(context);
+        }
+
+        @Override
+        public void addOnPageChangeListener(OnPageChangeListener listener) {
+            super.addOnPageChangeListener(listener);
+            mListeners.add(listener);
+        }
+
+        @Override
+        public void removeOnPageChangeListener(OnPageChangeListener listener) {
+            super.removeOnPageChangeListener(listener);
+            mListeners.remove(listener);
+        }
+
+        void dispatchPageScrolled(int position, float offset) {
+            for (int i = 0; i < mListeners.size(); i++) {
+                mListeners.get(i).onPageScrolled(position, offset, (int) (offset * WIDTH));
+            }
+        }
+
+        void dispatchPageSelected(int position) {
+            for (int i = 0; i < mListeners.size(); i++) {
+                mListeners.get(i).onPageSelected(position);
+            }
+        }
+
+        void dispatchPageScrollStateChanged(int state) {
+            for (int i = 0; i < mListeners.size(); i++) {
+                mListeners.get(i).onPageScrollStateChanged(state);
+            }
+        }
+    }
+
+    /**
+     * A canvas that only counts draw calls, so that allocations of the
+     * Robolectric canvas shadow do not count against the strip.
+     */
+    private static class CountingCanvas extends Canvas {
+        int drawCalls;
+
+        @Override
+        public void drawText(char[] text, int index, int count, float x, float y, Paint paint) {
+            drawCalls++;
+        }
+
+        @Override
+        public void drawText(String text, float x, float y, Paint paint) {
+            drawCalls++;
+        }
+
+        @Override
+        public void drawText(String text, int start, int end, float x, float y, Paint paint) {
+            drawCalls++;
+        }
+
+        @Override
+        public void drawText(CharSequence text, int start, int end, float x, float y, Paint paint) {
+            drawCalls++;
+        }
+
+        @Override
+        public void drawTextRun(char[] text, int index, int count, int contextIndex, int contextCount,
+                                float x, float y, boolean isRtl, Paint paint) {
+            drawCalls++;
+        }
+
+        @Override
+        public void drawTextRun(CharSequence text, int start, int end, int contextStart, int contextEnd,
+                                float x, float y, boolean isRtl, Paint paint) {
+            drawCalls++;
+        }
+
+        @Override
+        public void drawRoundRect(RectF rect, float rx, float ry, Paint paint) {
+            drawCalls++;
+        }
+
+        @Override
+        public void drawLine(float startX, float startY, float stopX, float stopY, Paint paint) {
+            drawCalls++;
+        }
+
+        @Override
+        public void drawLines(float[] pts, int offset, int count, Paint paint) {
+            drawCalls++;
+        }
+
+        @Override
+        public void drawLines(float[] pts, Paint paint) {
+            drawCalls++;
+        }
+
+        @Override
+        public boolean getClipBounds(Rect bounds) {
+            bounds.set(0, 0, WIDTH, HEIGHT);
+            return true;
+        }
+
+        @Override
+        public int save() {
+            return 1;
+        }
+
+        @Override
+        public void restoreToCount(int saveCount) {
+        }
+
+        @Override
+        public void translate(float dx, float dy) {
+        }
+    }
+}